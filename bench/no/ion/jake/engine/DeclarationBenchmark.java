@@ -0,0 +1,184 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.LogSink;
+import no.ion.jake.Project;
+import no.ion.jake.build.Artifact;
+import no.ion.jake.build.Build;
+import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Declarator;
+import no.ion.jake.build.Module;
+import no.ion.jake.build.ModuleContext;
+import no.ion.jake.engine.cache.ActionCache;
+import no.ion.jake.io.FileDigests;
+import no.ion.jake.maven.MavenArtifactId;
+import no.ion.jake.maven.MavenCentral;
+import no.ion.jake.maven.MavenRepository;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+
+/**
+ * Measures the time to declare the builds of a synthetic project of 1,000 modules, one module at a time versus
+ * concurrently with {@link ModuleDeclarations} on the common fork-join pool.
+ *
+ * <p>The modules are layered like {@code CriticalPathOrderBenchmark}: each depends on up to 4 modules in the previous
+ * layer, and declares a Maven download shared with other modules, and compile, test and jar builds.  WORK_MICROS
+ * simulates the time a module spends on its own before declaring, e.g. reading its pom.xml.</p>
+ *
+ * <p>Usage: DeclarationBenchmark [WORK_MICROS]</p>
+ */
+public class DeclarationBenchmark {
+    private static final int MODULES = 1_000;
+    private static final int LAYER_WIDTH = 50;
+    private static final int MAVEN_ARTIFACTS = 20;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        long workNanos = args.length > 0 ? Long.parseLong(args[0]) * 1000 : 0;
+        List<List<Integer>> dependencies = layeredDependencies(new Random(MODULES));
+
+        System.out.println(String.format(Locale.ROOT, "%d modules, %d fork-join threads, %d us of work per module",
+                MODULES, ForkJoinPool.commonPool().getParallelism(), workNanos / 1000));
+        measure("sequential", Runnable::run, dependencies, workNanos);
+        measure("concurrent", ForkJoinPool.commonPool(), dependencies, workNanos);
+    }
+
+    private static void measure(String name, Executor executor, List<List<Integer>> dependencies, long workNanos) {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            declare(executor, dependencies, workNanos);
+        }
+
+        long minNanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+            minNanos = Math.min(minNanos, declare(executor, dependencies, workNanos));
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-10s  %8.3f ms  %6.1f us per module", name,
+                minNanos / 1e6, minNanos / 1e3 / MODULES));
+    }
+
+    /** Returns the time to declare all modules. */
+    private static long declare(Executor executor, List<List<Integer>> dependencies, long workNanos) {
+        var project = new Project(Path.of("/synthetic"), Path.of("/synthetic/jake.jar"));
+        var mavenRepository = new MavenRepository(Path.of("/synthetic/.m2/repository"), MAVEN_CENTRAL);
+        // Declaration does not run builds, and so needs no executor
+        var buildSet = new BuildSet(null, NULL_LOG_SINK, BuildHistory.inMemory(), FileDigests.inMemory(),
+                ActionCache.disabled(), new EngineOptions());
+
+        long startNanos = System.nanoTime();
+        var moduleDeclarations = new ModuleDeclarations(buildSet, executor);
+        var modules = new ArrayList<CompletableFuture<SyntheticModule>>(MODULES);
+        for (int i = 0; i < MODULES; ++i) {
+            var moduleDependencies = new ArrayList<CompletableFuture<? extends Module>>();
+            dependencies.get(i).forEach(index -> moduleDependencies.add(modules.get(index)));
+            int index = i;
+            modules.add(moduleDeclarations.declare(
+                    new ModuleContext(project, project.path().resolve("module-" + i)),
+                    moduleDependencies,
+                    context -> new SyntheticModule(index, mavenRepository, joinAll(moduleDependencies), workNanos)));
+        }
+        moduleDeclarations.awaitAll();
+        return System.nanoTime() - startNanos;
+    }
+
+    private static List<SyntheticModule> joinAll(List<CompletableFuture<? extends Module>> modules) {
+        var joined = new ArrayList<SyntheticModule>(modules.size());
+        modules.forEach(module -> joined.add((SyntheticModule) module.join()));
+        return joined;
+    }
+
+    private static List<List<Integer>> layeredDependencies(Random random) {
+        var dependencies = new ArrayList<List<Integer>>(MODULES);
+        for (int i = 0; i < MODULES; ++i) {
+            var moduleDependencies = new ArrayList<Integer>();
+            int layerStart = i - i % LAYER_WIDTH;
+            if (layerStart > 0) {
+                int numDependencies = 1 + random.nextInt(4);
+                for (int j = 0; j < numDependencies; ++j) {
+                    int dependency = layerStart - LAYER_WIDTH + random.nextInt(LAYER_WIDTH);
+                    if (!moduleDependencies.contains(dependency)) {
+                        moduleDependencies.add(dependency);
+                    }
+                }
+            }
+            dependencies.add(moduleDependencies);
+        }
+        return dependencies;
+    }
+
+    private static class SyntheticModule implements Module {
+        private final int index;
+        private final MavenRepository mavenRepository;
+        private final List<SyntheticModule> dependencies;
+        private final long workNanos;
+        private Artifact<Path> jarArtifact = null;
+
+        private SyntheticModule(int index, MavenRepository mavenRepository, List<SyntheticModule> dependencies,
+                                long workNanos) {
+            this.index = index;
+            this.mavenRepository = mavenRepository;
+            this.dependencies = dependencies;
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        public String moduleName() { return "module-" + index; }
+
+        @Override
+        public void declareBuilds(Declarator declarator) {
+            long deadline = System.nanoTime() + workNanos;
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+
+            var mavenArtifactId = MavenArtifactId.from("com.example", "library-" + index % MAVEN_ARTIFACTS);
+            Artifact<Path> library = mavenRepository.declareDownload(declarator, mavenArtifactId).pathArtifact();
+
+            Artifact<Path> classes;
+            try (var declaration = declarator.declareNewBuild()) {
+                declaration.forBuild(new NoopBuild("compile")).dependsOn(library);
+                dependencies.forEach(dependency -> declaration.dependsOn(dependency.jarArtifact));
+                classes = declaration.producesArtifact(Path.class, "classes");
+            }
+
+            Artifact<Void> testResults;
+            try (var declaration = declarator.declareNewBuild()) {
+                declaration.forBuild(new NoopBuild("test")).dependsOn(classes);
+                testResults = declaration.producesArtifact(Void.class, "test-results");
+            }
+
+            try (var declaration = declarator.declareNewBuild()) {
+                declaration.forBuild(new NoopBuild("jar")).dependsOn(classes).dependsOn(testResults);
+                jarArtifact = declaration.producesArtifact(Path.class, "jar");
+            }
+
+            declarator.declareTarget("compile", classes);
+            declarator.declareTarget("test", testResults);
+            declarator.declareTarget("jar", jarArtifact);
+        }
+    }
+
+    private static class NoopBuild implements Build {
+        private final String name;
+
+        private NoopBuild(String name) { this.name = name; }
+
+        @Override public String name() { return name; }
+        @Override public void build(BuildContext buildContext) {}
+    }
+
+    private static final MavenCentral MAVEN_CENTRAL = new MavenCentral();
+
+    private static final LogSink NULL_LOG_SINK = new LogSink() {
+        @Override public boolean isEnabled(Level level) { return false; }
+        @Override public void log(Level level, String message, Throwable throwable) {}
+    };
+}
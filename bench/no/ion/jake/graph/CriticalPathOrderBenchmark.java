@@ -0,0 +1,133 @@
+package no.ion.jake.graph;
+
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures the cost of selecting the next build with {@link CriticalPathOrder}, for graphs of 1k to 100k builds.
+ *
+ * <p>Each graph is executed by repeatedly selecting the next build, reporting it active, and reporting it
+ * completed, as the scheduler of BuildGraph does with a single thread.  The time per selection should stay flat
+ * as the graph grows.  The heap retained by the order, excluding the builds themselves, is measured too.</p>
+ */
+public class CriticalPathOrderBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    /** The number of builds in each layer:  Each build depends on up to 4 builds in the previous layer. */
+    private static final int LAYER_WIDTH = 100;
+
+    public static void main(String[] args) {
+        for (int size : new int[] { 1_000, 10_000, 100_000 }) {
+            List<BuildMeta<Id>> builds = layeredGraph(size, new Random(size));
+
+            for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+                execute(builds);
+            }
+
+            long minNanos = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+                minNanos = Math.min(minNanos, execute(builds));
+            }
+
+            System.out.println(String.format(Locale.ROOT, "%7d builds: %8.1f ns per selection, %7.2f MB retained",
+                    size, minNanos / (double) size, retainedBytes(builds) / 1e6));
+        }
+    }
+
+    /** Returns the time spent executing the builds, excluding the construction of the order. */
+    private static long execute(List<BuildMeta<Id>> builds) {
+        CriticalPathOrder<Id> order = CriticalPathOrder.order(builds);
+
+        long startNanos = System.nanoTime();
+        int selections = 0;
+        while (true) {
+            BuildOrder.NextBuild<Id> nextBuild = order.calculateNextBuild();
+            if (nextBuild.isDone()) break;
+            Id id = nextBuild.getReadyBuild();
+            order.reportActiveBuild(id);
+            order.reportCompletedBuild(id);
+            ++selections;
+        }
+        long nanos = System.nanoTime() - startNanos;
+
+        if (selections != builds.size()) {
+            throw new IllegalStateException("executed " + selections + " of " + builds.size() + " builds");
+        }
+        return nanos;
+    }
+
+    private static long retainedBytes(List<BuildMeta<Id>> builds) {
+        long usedBefore = usedHeapAfterGc();
+        CriticalPathOrder<Id> order = CriticalPathOrder.order(builds);
+        long usedAfter = usedHeapAfterGc();
+        Reference.reachabilityFence(order);
+        return usedAfter - usedBefore;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<BuildMeta<Id>> layeredGraph(int size, Random random) {
+        var builds = new ArrayList<BuildMeta<Id>>(size);
+        for (int i = 0; i < size; ++i) {
+            Set<Id> dependencies = new HashSet<>();
+            int layerStart = i - i % LAYER_WIDTH;
+            if (layerStart > 0) {
+                int numDependencies = 1 + random.nextInt(4);
+                for (int j = 0; j < numDependencies; ++j) {
+                    dependencies.add(new Id(layerStart - LAYER_WIDTH + random.nextInt(LAYER_WIDTH)));
+                }
+            }
+            builds.add(new Meta(new Id(i), Duration.ofMillis(1 + random.nextInt(1000)), dependencies));
+        }
+        return builds;
+    }
+
+    private static class Id implements NodeId {
+        private final int index;
+
+        private Id(int index) { this.index = index; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return index == ((Id) o).index;
+        }
+
+        @Override public int hashCode() { return Objects.hash(index); }
+        @Override public String toString() { return "build " + index; }
+    }
+
+    private static class Meta implements BuildMeta<Id> {
+        private final Id id;
+        private final Duration expectedBuildDuration;
+        private final Set<Id> dependencies;
+
+        private Meta(Id id, Duration expectedBuildDuration, Set<Id> dependencies) {
+            this.id = id;
+            this.expectedBuildDuration = expectedBuildDuration;
+            this.dependencies = dependencies;
+        }
+
+        @Override public Id id() { return id; }
+        @Override public Duration expectedBuildDuration() { return expectedBuildDuration; }
+        @Override public float expectedLoad() { return 1f; }
+        @Override public boolean ioBound() { return false; }
+        @Override public Set<Id> dependencies() { return dependencies; }
+        @Override public String toString() { return id.toString(); }
+    }
+}
@@ -0,0 +1,92 @@
+package no.ion.jake.vespa;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the end-to-end time of running the jake script on a project, with a new JVM per run (cold) versus
+ * with a daemon (warm), both for full rebuilds and for builds where everything is up to date.
+ *
+ * <p>Usage: DaemonBenchmark JAKE_SCRIPT PROJECT_DIR [RUNS]</p>
+ */
+public class DaemonBenchmark {
+    private static final int DEFAULT_RUNS = 5;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("usage: DaemonBenchmark JAKE_SCRIPT PROJECT_DIR [RUNS]");
+            System.exit(1);
+        }
+        Path jake = Path.of(args[0]).toAbsolutePath();
+        Path project = Path.of(args[1]).toAbsolutePath();
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+
+        Path socket = Files.createTempDirectory("jake-bench").resolve("daemon.sock");
+        measure("cold rebuild", jake, project, socket, false, runs, "-B", "--no-cache");
+        measure("cold no-op", jake, project, socket, false, runs);
+
+        var daemonBuilder = new ProcessBuilder(jake.toString(), "--daemon")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .directory(project.toFile());
+        daemonBuilder.environment().put("JAKE_DAEMON_SOCKET", socket.toString());
+        Process daemon = daemonBuilder.start();
+        try {
+            awaitSocket(daemon, socket);
+            measure("warm rebuild", jake, project, socket, true, runs, "-B", "--no-cache");
+            measure("warm no-op", jake, project, socket, true, runs);
+        } finally {
+            daemon.destroy();
+            daemon.waitFor();
+        }
+    }
+
+    private static void awaitSocket(Process daemon, Path socket) throws InterruptedException {
+        for (int i = 0; i < 300 && !Files.exists(socket); ++i) {
+            if (!daemon.isAlive()) {
+                throw new IllegalStateException("daemon exited with status " + daemon.exitValue());
+            }
+            Thread.sleep(100);
+        }
+        if (!Files.exists(socket)) {
+            throw new IllegalStateException("daemon did not create " + socket);
+        }
+    }
+
+    private static void measure(String name, Path jake, Path project, Path socket, boolean useDaemon, int runs,
+                                String... jakeArgs) throws IOException, InterruptedException {
+        var seconds = new ArrayList<Double>();
+        for (int i = 0; i < runs; ++i) {
+            var command = new ArrayList<String>();
+            command.add(jake.toString());
+            command.addAll(Arrays.asList(jakeArgs));
+            var processBuilder = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .directory(project.toFile());
+            processBuilder.environment().put("JAKE_DAEMON", useDaemon ? "yes" : "no");
+            processBuilder.environment().put("JAKE_DAEMON_SOCKET", socket.toString());
+
+            long startNanos = System.nanoTime();
+            int status = processBuilder.start().waitFor();
+            seconds.add((System.nanoTime() - startNanos) / 1e9);
+            if (status != 0) {
+                throw new IllegalStateException(name + " failed with exit status " + status);
+            }
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-12s  first %6.3f s  median %6.3f s  min %6.3f s",
+                name, seconds.get(0), median(seconds), seconds.stream().mapToDouble(Double::doubleValue).min().orElseThrow()));
+    }
+
+    private static double median(List<Double> values) {
+        var sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,100 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.LogSink;
+import no.ion.jake.Project;
+import no.ion.jake.build.Artifact;
+import no.ion.jake.build.Build;
+import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.ModuleContext;
+import no.ion.jake.engine.cache.ActionCache;
+import no.ion.jake.graph.BuildMeta;
+import no.ion.jake.graph.SyntheticDags;
+import no.ion.jake.io.FileDigests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a build graph of no-op builds end-to-end with {@link BuildSet#buildEverything()}:  The scheduler, the worker
+ * threads, the up-to-date checks and the publication of artifacts.  Since the builds do nothing, the time divided by
+ * the size is the overhead of the engine per build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildGraphJmh {
+    @Param({ "CHAIN", "FAN", "LAYERED", "RANDOM" })
+    public SyntheticDags.Shape shape;
+
+    @Param({ "100", "1000" })
+    public int size;
+
+    private List<BuildMeta<SyntheticDags.Id>> builds;
+    private JakeExecutor jakeExecutor;
+    private BuildSet buildSet;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        builds = SyntheticDags.generate(shape, size, size);
+        jakeExecutor = new JakeExecutor(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Artifacts hold the state of a single run, so the builds are declared anew for each. */
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        buildSet = new BuildSet(jakeExecutor, NULL_LOG_SINK, BuildHistory.inMemory(), FileDigests.inMemory(),
+                ActionCache.disabled(), new EngineOptions());
+        var project = new Project(Path.of("/synthetic"), Path.of("/synthetic/jake.jar"));
+        var moduleContext = new ModuleContext(project, project.path());
+
+        var artifacts = new ArrayList<Artifact<Void>>(builds.size());
+        for (BuildMeta<SyntheticDags.Id> buildMeta : builds) {
+            try (var declaration = new BuildDeclarationImpl(buildSet, moduleContext, "synthetic")) {
+                buildMeta.dependencies().forEach(dependency -> declaration.dependsOn(artifacts.get(dependency.index())));
+                Artifact<Void> artifact = declaration.producesArtifact(Void.class, buildMeta.id().toString());
+                declaration.forBuild(new NoopBuild(buildMeta.id().toString(), artifact));
+                artifacts.add(artifact);
+            }
+        }
+    }
+
+    @Benchmark
+    public void buildEverything() {
+        buildSet.buildEverything();
+    }
+
+    private static class NoopBuild implements Build {
+        private final String name;
+        private final Artifact<Void> artifact;
+
+        private NoopBuild(String name, Artifact<Void> artifact) {
+            this.name = name;
+            this.artifact = artifact;
+        }
+
+        @Override public String name() { return name; }
+        @Override public void build(BuildContext buildContext) { buildContext.publish(artifact); }
+    }
+
+    private static final LogSink NULL_LOG_SINK = new LogSink() {
+        @Override public boolean isEnabled(java.util.logging.Level level) { return false; }
+        @Override public void log(java.util.logging.Level level, String message, Throwable throwable) {}
+    };
+}
@@ -0,0 +1,62 @@
+package no.ion.jake.graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of ordering a build graph with {@link CriticalPathOrder}, and of executing it with the
+ * calculateNextBuild/reportActiveBuild/reportCompletedBuild cycle of the BuildGraph scheduler.  The scheduler
+ * overhead per build is the difference between the two, divided by the size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CriticalPathOrderJmh {
+    @Param({ "CHAIN", "FAN", "LAYERED", "RANDOM" })
+    public SyntheticDags.Shape shape;
+
+    @Param({ "1000", "10000", "100000" })
+    public int size;
+
+    private List<BuildMeta<SyntheticDags.Id>> builds;
+
+    @Setup
+    public void setup() {
+        builds = SyntheticDags.generate(shape, size, size);
+    }
+
+    @Benchmark
+    public CriticalPathOrder<SyntheticDags.Id> order() {
+        return CriticalPathOrder.order(builds);
+    }
+
+    @Benchmark
+    public int orderAndExecute() {
+        CriticalPathOrder<SyntheticDags.Id> order = CriticalPathOrder.order(builds);
+        int executed = 0;
+        while (true) {
+            BuildOrder.NextBuild<SyntheticDags.Id> nextBuild = order.calculateNextBuild();
+            if (nextBuild.isDone()) break;
+            SyntheticDags.Id id = nextBuild.getReadyBuild();
+            order.reportActiveBuild(id);
+            order.reportCompletedBuild(id);
+            ++executed;
+        }
+        return executed;
+    }
+}
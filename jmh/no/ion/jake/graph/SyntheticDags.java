@@ -0,0 +1,143 @@
+package no.ion.jake.graph;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates build graphs of a given shape and size.  A build only depends on builds with a lower index, so the list
+ * is in a valid build order.  The same shape, size and seed always gives the same graph.
+ */
+public class SyntheticDags {
+    public enum Shape {
+        /** Each build depends on the previous:  No parallelism at all. */
+        CHAIN,
+        /** One build, then all but one build depending on it, and a last build depending on all of those. */
+        FAN,
+        /**
+         * Modules of 6 builds like the Vespa modules: sources, compile, test-compile, test, jar and javadoc.  The
+         * compile of a module depends on the jars of 1-4 modules in the previous layer of 20 modules.
+         */
+        LAYERED,
+        /** Each build depends on 0-4 random builds with a lower index. */
+        RANDOM
+    }
+
+    private static final int BUILDS_PER_MODULE = 6;
+    private static final int MODULES_PER_LAYER = 20;
+
+    public static List<BuildMeta<Id>> generate(Shape shape, int size, long seed) {
+        var random = new Random(seed);
+        var builds = new ArrayList<BuildMeta<Id>>(size);
+        for (int i = 0; i < size; ++i) {
+            builds.add(new Meta(new Id(i), Duration.ofMillis(1 + random.nextInt(1000)), dependenciesOf(shape, i, size, random)));
+        }
+        return builds;
+    }
+
+    private static Set<Id> dependenciesOf(Shape shape, int index, int size, Random random) {
+        var dependencies = new HashSet<Id>();
+        switch (shape) {
+            case CHAIN:
+                if (index > 0) {
+                    dependencies.add(new Id(index - 1));
+                }
+                break;
+            case FAN:
+                if (index == size - 1) {
+                    for (int i = 1; i < index; ++i) {
+                        dependencies.add(new Id(i));
+                    }
+                } else if (index > 0) {
+                    dependencies.add(new Id(0));
+                }
+                break;
+            case LAYERED:
+                addModuleDependencies(index, random, dependencies);
+                break;
+            case RANDOM:
+                if (index > 0) {
+                    int numDependencies = random.nextInt(5);
+                    for (int i = 0; i < numDependencies; ++i) {
+                        dependencies.add(new Id(random.nextInt(index)));
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown shape: " + shape);
+        }
+        return dependencies;
+    }
+
+    private static void addModuleDependencies(int index, Random random, Set<Id> dependencies) {
+        int module = index / BUILDS_PER_MODULE;
+        int first = module * BUILDS_PER_MODULE;
+        switch (index - first) {
+            case 0: // sources
+                break;
+            case 1: // compile
+                dependencies.add(new Id(first));
+                int layerStart = module - module % MODULES_PER_LAYER;
+                if (layerStart > 0) {
+                    int numDependencies = 1 + random.nextInt(4);
+                    for (int i = 0; i < numDependencies; ++i) {
+                        int dependencyModule = layerStart - MODULES_PER_LAYER + random.nextInt(MODULES_PER_LAYER);
+                        dependencies.add(new Id(dependencyModule * BUILDS_PER_MODULE + 4));
+                    }
+                }
+                break;
+            case 2: // test-compile
+            case 5: // javadoc
+                dependencies.add(new Id(index - 1));
+                break;
+            case 3: // test
+                dependencies.add(new Id(first + 2));
+                break;
+            case 4: // jar
+                dependencies.add(new Id(first + 1));
+                dependencies.add(new Id(first + 3));
+                break;
+        }
+    }
+
+    public static class Id implements NodeId {
+        private final int index;
+
+        private Id(int index) { this.index = index; }
+
+        public int index() { return index; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return index == ((Id) o).index;
+        }
+
+        @Override public int hashCode() { return Objects.hash(index); }
+        @Override public String toString() { return "build " + index; }
+    }
+
+    private static class Meta implements BuildMeta<Id> {
+        private final Id id;
+        private final Duration expectedBuildDuration;
+        private final Set<Id> dependencies;
+
+        private Meta(Id id, Duration expectedBuildDuration, Set<Id> dependencies) {
+            this.id = id;
+            this.expectedBuildDuration = expectedBuildDuration;
+            this.dependencies = dependencies;
+        }
+
+        @Override public Id id() { return id; }
+        @Override public Duration expectedBuildDuration() { return expectedBuildDuration; }
+        @Override public float expectedLoad() { return 1f; }
+        @Override public boolean ioBound() { return false; }
+        @Override public Set<Id> dependencies() { return dependencies; }
+        @Override public String toString() { return id.toString(); }
+    }
+}
@@ -85,6 +85,21 @@ public class Project {
 
     public Path jakeJarPath() { return jakeJarPath; }
 
+    /** The file with the durations of earlier builds of this project. */
+    public Path pathToBuildHistory() {
+        return path.resolve(".jake/build-history");
+    }
+
+    /** The directory of the action cache shared by all projects of the user. */
+    public Path pathToActionCache() {
+        return home.resolve(".cache/jake");
+    }
+
+    /** The file caching the digests of files read by earlier builds of this project. */
+    public Path pathToFileDigests() {
+        return path.resolve(".jake/file-digests");
+    }
+
     private static void validatePathComponent(String component, String name) {
         if (component.indexOf('/') != -1 || component.isEmpty() || component.equals(".") || component.equals("..")) {
             throw new UserError("bad " + name + ": " + component);
@@ -1,5 +1,8 @@
 package no.ion.jake.build;
 
+import java.nio.file.Path;
+import java.util.List;
+
 /** A build can produce its artifacts once its dependencies are satisfied. */
 public interface Build {
     /** Unique name of the build within the module. */
@@ -12,4 +15,26 @@ public interface Build {
      */
     void build(BuildContext buildContext);
 
+    /**
+     * Whether the build spends most of its time waiting for I/O, e.g. downloading or copying files.  An I/O-bound
+     * build is run on a separate set of threads, and is not counted against the target load.
+     */
+    default boolean ioBound() { return false; }
+
+    /**
+     * Adds the inputs of the build to the fingerprint and returns true, or returns false if the build should always
+     * be run (the default).  The details of the artifacts the build depends on are added by the engine, so only
+     * inputs not declared as dependencies need to be added, e.g. arguments, and files and class path entries not
+     * backed by an artifact.
+     *
+     * <p>If the fingerprint is equal to that of the last successful run, and the artifacts it produced are
+     * unchanged, the build is skipped and the artifacts are republished with the same details.</p>
+     */
+    default boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) { return false; }
+
+    /**
+     * The directories of source files read by the build, which are watched for changes with --watch (default none).
+     * Other builds only need to read artifacts.
+     */
+    default List<Path> watchedDirectories(ModuleContext moduleContext) { return List.of(); }
 }
@@ -0,0 +1,8 @@
+package no.ion.jake.build;
+
+import no.ion.jake.JakeException;
+
+/** Thrown by a build that stopped because it was cancelled, see {@link BuildContext#isCancelled()}. */
+public class BuildCancelledException extends JakeException {
+    public BuildCancelledException() { super("build was cancelled"); }
+}
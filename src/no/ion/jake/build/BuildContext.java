@@ -10,6 +10,22 @@ public interface BuildContext {
     Logger log();
     Duration durationUpToNow();
 
+    /**
+     * Whether the build has been cancelled, e.g. because another build failed.  A long-running build should poll
+     * this regularly, and stop by throwing {@link BuildCancelledException}.
+     */
+    boolean isCancelled();
+
+    /** Throws {@link BuildCancelledException} if the build has been cancelled. */
+    default void checkCancelled() {
+        if (isCancelled()) {
+            throw new BuildCancelledException();
+        }
+    }
+
+    /** Returns an empty fingerprint, e.g. for telling whether an output has changed by comparing before and after. */
+    Fingerprint newFingerprint();
+
     default <T> void publish(Artifact<T> artifact, T detail) { newPublicationOf(artifact).publish(detail); }
     default void publish(Artifact<Void> artifact) { publish(artifact, null); }
 
@@ -17,6 +33,10 @@ public interface BuildContext {
         Publication<T> logWithDuration(String accomplishment);
         Publication<T> log(String accomplishment);
 
+        /**
+         * Whether the detail, or the content it refers to, may have changed since the previous run of the build
+         * (default true).  A build depending only on unchanged artifacts will not be rerun if it is up to date.
+         */
         Publication<T> hasChanged(boolean hasChanged);
         void publish(T detail);  // use null for Void
     }
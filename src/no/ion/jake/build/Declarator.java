@@ -7,6 +7,12 @@ public interface Declarator {
     default BuildDeclaration declareNewBuild() { return declareNewBuild(moduleName()); }
     BuildDeclaration declareNewBuild(String namespace);
 
+    /**
+     * Lets the artifact be requested as the target MODULE:NAME, e.g. "yolean:test".  Several artifacts may be
+     * declared with the same name.  An artifact can also be requested by its own name.
+     */
+    void declareTarget(String name, Artifact<?> artifact);
+
     interface BuildDeclaration extends AutoCloseable {
         BuildDeclaration forBuild(Build build);
         BuildDeclaration dependsOn(Artifact<?> artifact);
@@ -0,0 +1,88 @@
+package no.ion.jake.build;
+
+import no.ion.jake.io.FileDigests;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * A digest of the inputs of a build.  Two runs of a build with equal fingerprints are assumed to produce
+ * equal artifacts.
+ *
+ * <p>Paths below the root directory, typically the project directory, are added relative to it, so that checkouts
+ * of the project in different directories give equal fingerprints.</p>
+ */
+public class Fingerprint {
+    private final FileDigests fileDigests;
+    private final Path root;
+    private final MessageDigest messageDigest = FileDigests.newMessageDigest();
+
+    public Fingerprint(FileDigests fileDigests, Path root) {
+        this.fileDigests = fileDigests;
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /** Adds a string, which may be null. */
+    public Fingerprint putString(String value) {
+        if (value == null) {
+            messageDigest.update((byte) 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            messageDigest.update((byte) 1);
+            putInt(bytes.length);
+            messageDigest.update(bytes);
+        }
+        return this;
+    }
+
+    public Fingerprint putStrings(List<String> values) {
+        putInt(values.size());
+        values.forEach(this::putString);
+        return this;
+    }
+
+    /** Adds the path, but not the content of the file. */
+    public Fingerprint putPath(Path path) {
+        if (path == null) {
+            return putString(null);
+        }
+
+        Path absolutePath = path.toAbsolutePath().normalize();
+        if (absolutePath.startsWith(root)) {
+            return putString("//" + root.relativize(absolutePath));
+        } else {
+            return putString(absolutePath.toString());
+        }
+    }
+
+    /** Adds the path and the content of the file, or of the directory tree. */
+    public Fingerprint putFile(Path path) {
+        putPath(path);
+        return putString(fileDigests.digestOf(path));
+    }
+
+    /** Adds the path and the content of the class files in the directory tree, see {@link FileDigests#digestOfClassFiles}. */
+    public Fingerprint putClassFiles(Path directory) {
+        putPath(directory);
+        return putString(fileDigests.digestOfClassFiles(directory));
+    }
+
+    public Fingerprint putBoolean(boolean value) {
+        messageDigest.update((byte) (value ? 1 : 0));
+        return this;
+    }
+
+    /** Returns the fingerprint as a hex string.  The fingerprint cannot be modified afterwards. */
+    public String hex() {
+        return FileDigests.toHex(messageDigest.digest());
+    }
+
+    private void putInt(int value) {
+        messageDigest.update((byte) (value >>> 24));
+        messageDigest.update((byte) (value >>> 16));
+        messageDigest.update((byte) (value >>> 8));
+        messageDigest.update((byte) value);
+    }
+}
@@ -21,6 +21,7 @@ public class ModuleContext {
     public Path resolve(Path path) { return this.path.resolve(path).normalize(); }
 
     public Path jakeJarPath() { return project.jakeJarPath(); }
+    public Path projectPath() { return project.path(); }
 
     public Project getProject() {
         // TODO: REMOVE
@@ -1,12 +1,62 @@
 package no.ion.jake.build;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /**
- * The specification of the goal targets of the current build execution, e.g. "build everything",
- * "build a specific JAR file and run these tests", or "clean".  If a module X does not understand
- * all targets it should register all possible targets, as a module Y that understands the target may
- * depends on any of X's targets.
+ * The specification of the goal targets of the current build execution, e.g. "build everything", or "build a specific
+ * JAR file and run these tests".  A target is on the form MODULE:NAME, where NAME is a target declared by the module
+ * with {@link Declarator#declareTarget(String, Artifact)}, or the name of an artifact produced by the module.  Only the
+ * builds needed to produce the targets are run.
  */
-public interface TargetPattern {
-    /** Whether to clean up after previous builds of the module. */
-    boolean clean();
+public class TargetPattern {
+    private final List<Target> targets;
+
+    public static class Target {
+        private final String module;
+        private final String name;
+
+        private Target(String module, String name) {
+            this.module = module;
+            this.name = name;
+        }
+
+        public String module() { return module; }
+        public String name() { return name; }
+
+        @Override
+        public String toString() { return module + ":" + name; }
+    }
+
+    public static TargetPattern everything() {
+        return new TargetPattern(List.of());
+    }
+
+    /** @throws IllegalArgumentException if a target is not on the form MODULE:NAME */
+    public static TargetPattern of(List<String> targets) {
+        var parsedTargets = new ArrayList<Target>();
+        for (String target : targets) {
+            int colon = target.indexOf(':');
+            if (colon <= 0 || colon == target.length() - 1) {
+                throw new IllegalArgumentException("target is not on the form MODULE:NAME: " + target);
+            }
+            parsedTargets.add(new Target(target.substring(0, colon), target.substring(colon + 1)));
+        }
+        return new TargetPattern(parsedTargets);
+    }
+
+    private TargetPattern(List<Target> targets) {
+        this.targets = List.copyOf(targets);
+    }
+
+    /** Whether to run all builds, which is the case if no targets were given. */
+    public boolean buildsEverything() { return targets.isEmpty(); }
+
+    public List<Target> targets() { return targets; }
+
+    @Override
+    public String toString() {
+        return buildsEverything() ? "everything" : Objects.toString(targets);
+    }
 }
@@ -3,16 +3,19 @@ package no.ion.jake.engine;
 import no.ion.jake.build.Artifact;
 
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public class ArtifactImpl<T> implements Artifact<T> {
     private final ArtifactId artifactId;
     private final Class<T> artifactClass;
 
     // Set when (if) the build is defined
-    private BuildId buildId = null;
+    private volatile BuildId buildId = null;
 
     private final Object monitor = new Object();
     private T instance = null;
+    private String digest = null;
+    private boolean changed = true;
 
     public ArtifactImpl(ArtifactId artifactId, Class<T> artifactClass) {
         this.artifactId = artifactId;
@@ -24,12 +27,19 @@ public class ArtifactImpl<T> implements Artifact<T> {
     @Override public String name() { return artifactId.artifactName(); }
     public Class<T> instanceClass() { return artifactClass; }
     public BuildId buildId() { return Objects.requireNonNull(buildId, "build ID has not yet been set"); }
+    /** Whether a build producing the artifact has been added. */
+    public boolean hasBuildId() { return buildId != null; }
 
-    public void publish(T instance) {
+    /** Publish the instance, and whether the producer knows it has changed since the previous run. */
+    public void publish(T instance, boolean changed) {
         if (artifactClass == Void.class) {
             if (instance != null) {
                 throw new IllegalArgumentException("non-null Void instance");
             }
+            synchronized (monitor) {
+                this.digest = null;
+                this.changed = changed;
+            }
             return;
         }
 
@@ -41,6 +51,31 @@ public class ArtifactImpl<T> implements Artifact<T> {
 
         synchronized (monitor) {
             this.instance = instance;
+            this.digest = null;
+            this.changed = changed;
+        }
+    }
+
+    /** Returns false if the producer reported the published instance as unchanged since the previous run. */
+    public boolean changed() {
+        synchronized (monitor) {
+            return changed;
+        }
+    }
+
+    /** Returns the digest of the published detail, computing it with the supplier if not already set. */
+    public String digest(Supplier<String> supplier) {
+        synchronized (monitor) {
+            if (digest == null) {
+                digest = Objects.requireNonNull(supplier.get(), "digest cannot be null");
+            }
+            return digest;
+        }
+    }
+
+    public void setDigest(String digest) {
+        synchronized (monitor) {
+            this.digest = Objects.requireNonNull(digest);
         }
     }
 
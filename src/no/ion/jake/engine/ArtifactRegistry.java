@@ -2,7 +2,10 @@ package no.ion.jake.engine;
 
 import no.ion.jake.build.Artifact;
 
-@FunctionalInterface
 public interface ArtifactRegistry {
     <T> ArtifactImpl<T> verifyArtifact(Artifact<T> artifact, BuildId buildId);
+
+    ArtifactImpl<?> artifactOf(ArtifactId artifactId);
+
+    BuildInfo buildOf(BuildId buildId);
 }
@@ -3,8 +3,10 @@ package no.ion.jake.engine;
 import no.ion.jake.LogSink;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
 import no.ion.jake.build.Logger;
 import no.ion.jake.build.ModuleContext;
+import no.ion.jake.io.FileDigests;
 import no.ion.jake.util.Stopwatch;
 
 import java.time.Duration;
@@ -20,10 +22,14 @@ public class BuildContextImpl implements BuildContext, AutoCloseable {
     private final String moduleName;
     private final BuildId buildId;
     private final Stopwatch.Running runningStopwatch;
+    private final BuildCpuTimer cpuTimer;
+    private final CancellationToken cancellationToken;
+    private final FileDigests fileDigests;
 
     private boolean closed = false;
 
-    public BuildContextImpl(ArtifactRegistry artifactRegistry, LogSink logSink, BuildInfo buildInfo) {
+    public BuildContextImpl(ArtifactRegistry artifactRegistry, LogSink logSink, BuildInfo buildInfo,
+                            CancellationToken cancellationToken, FileDigests fileDigests) {
         this.artifactRegistry = artifactRegistry;
         this.logger = new Logger(logSink, buildInfo.namespace());
         this.buildInfo = buildInfo;
@@ -31,6 +37,9 @@ public class BuildContextImpl implements BuildContext, AutoCloseable {
         this.moduleName = buildInfo.namespace();
         this.buildId = buildInfo.id();
         this.runningStopwatch = Stopwatch.start();
+        this.cpuTimer = BuildCpuTimer.start();
+        this.cancellationToken = cancellationToken;
+        this.fileDigests = fileDigests;
     }
 
     @Override
@@ -92,8 +101,6 @@ public class BuildContextImpl implements BuildContext, AutoCloseable {
                 }
             }
 
-            // todo: handle !hasChanged
-
             ArtifactImpl<T> artifactImpl;
             try {
                 artifactImpl = artifactRegistry.verifyArtifact(artifact, buildId);
@@ -105,7 +112,7 @@ public class BuildContextImpl implements BuildContext, AutoCloseable {
                 throw new IllegalArgumentException("artifact has already been published this build: " + artifactImpl.toString());
             }
 
-            artifactImpl.publish(detail);
+            artifactImpl.publish(detail, hasChanged);
         }
     }
 
@@ -120,6 +127,25 @@ public class BuildContextImpl implements BuildContext, AutoCloseable {
         return runningStopwatch.stop();
     }
 
+    @Override
+    public Fingerprint newFingerprint() {
+        verifyOpen();
+        return new Fingerprint(fileDigests, moduleContext.projectPath());
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancellationToken.isCancelled();
+    }
+
+    /**
+     * The CPU time spent since construction by the current thread, which must be the thread running the build,
+     * and the threads it has spawned.
+     */
+    public Duration cpuTimeUpToNow() {
+        return cpuTimer.cpuTimeUpToNow();
+    }
+
     @Override
     public void close() {
         verifyOpen();
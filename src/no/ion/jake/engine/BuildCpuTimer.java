@@ -0,0 +1,102 @@
+package no.ion.jake.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures the CPU time spent by a build:  The CPU time of the thread running the build, plus the CPU time of
+ * threads it spawns.
+ *
+ * <p>A thread is created in the thread group of the thread creating it, and each worker thread of
+ * {@link JakeExecutor} has its own thread group.  The spawned threads are therefore those in the worker's
+ * thread group, and any thread already in the group when the build started is only attributed the CPU time
+ * spent after the start.  The CPU time of a thread cannot be read after it terminates, so the spawned threads are
+ * also sampled periodically by {@link #sampleAll()}:  A spawned thread terminating before the build completes
+ * loses the CPU time spent since the last sample.</p>
+ */
+class BuildCpuTimer {
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final Set<BuildCpuTimer> timersWithWorkerThreadGroup = ConcurrentHashMap.newKeySet();
+
+    private final Thread thread;
+    private final long startCpuTimeNanos;
+    private final ThreadGroup workerThreadGroup;
+    private final Map<Long, Long> startCpuTimeNanosByThreadId;
+    private final Map<Long, Long> lastCpuTimeNanosByThreadId = new ConcurrentHashMap<>();
+
+    /** Starts measuring the CPU time of the current thread, which must be the thread running the build. */
+    static BuildCpuTimer start() {
+        Thread thread = Thread.currentThread();
+        ThreadGroup threadGroup = thread.getThreadGroup();
+        if (threadGroup instanceof JakeExecutor.WorkerThreadGroup) {
+            var timer = new BuildCpuTimer(thread, threadGroup, cpuTimeNanosOfSpawnedThreads(thread, threadGroup));
+            timersWithWorkerThreadGroup.add(timer);
+            return timer;
+        } else {
+            return new BuildCpuTimer(thread, null, Map.of());
+        }
+    }
+
+    private BuildCpuTimer(Thread thread, ThreadGroup workerThreadGroup, Map<Long, Long> startCpuTimeNanosByThreadId) {
+        this.thread = thread;
+        this.startCpuTimeNanos = threadMXBean.getCurrentThreadCpuTime();
+        this.workerThreadGroup = workerThreadGroup;
+        this.startCpuTimeNanosByThreadId = startCpuTimeNanosByThreadId;
+    }
+
+    /** Samples the CPU time of the threads spawned by all running builds.  Thread-safe. */
+    static void sampleAll() {
+        timersWithWorkerThreadGroup.forEach(BuildCpuTimer::sample);
+    }
+
+    /**
+     * The CPU time spent since start.  Must be invoked by the thread that started the timer, and stops the periodic
+     * sampling of spawned threads.
+     */
+    Duration cpuTimeUpToNow() {
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("CPU time must be read by the thread running the build");
+        }
+
+        long nanos = Math.max(0L, threadMXBean.getCurrentThreadCpuTime() - startCpuTimeNanos);
+
+        if (workerThreadGroup != null) {
+            timersWithWorkerThreadGroup.remove(this);
+            sample();
+            for (var entry : lastCpuTimeNanosByThreadId.entrySet()) {
+                long startNanos = startCpuTimeNanosByThreadId.getOrDefault(entry.getKey(), 0L);
+                nanos += Math.max(0L, entry.getValue() - startNanos);
+            }
+        }
+
+        return Duration.ofNanos(nanos);
+    }
+
+    private void sample() {
+        cpuTimeNanosOfSpawnedThreads(thread, workerThreadGroup).forEach((threadId, cpuTimeNanos) ->
+                lastCpuTimeNanosByThreadId.merge(threadId, cpuTimeNanos, Math::max));
+    }
+
+    private static Map<Long, Long> cpuTimeNanosOfSpawnedThreads(Thread worker, ThreadGroup threadGroup) {
+        // The array is sized with slack, since threads may be spawned between activeCount() and enumerate().
+        Thread[] threads = new Thread[threadGroup.activeCount() + 16];
+        int count = threadGroup.enumerate(threads, true);
+
+        var cpuTimeNanosByThreadId = new HashMap<Long, Long>();
+        for (int i = 0; i < count; ++i) {
+            if (threads[i] == worker) continue;
+            long threadId = threads[i].getId();
+            long cpuTimeNanos = threadMXBean.getThreadCpuTime(threadId);
+            if (cpuTimeNanos >= 0) {
+                cpuTimeNanosByThreadId.put(threadId, cpuTimeNanos);
+            }
+        }
+
+        return cpuTimeNanosByThreadId;
+    }
+}
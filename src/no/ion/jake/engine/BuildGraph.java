@@ -1,34 +1,62 @@
 package no.ion.jake.engine;
 
-import com.sun.management.ThreadMXBean;
+import no.ion.jake.AbortException;
+import no.ion.jake.JakeException;
 import no.ion.jake.LogSink;
+import no.ion.jake.engine.load.HeapMonitor;
+import no.ion.jake.engine.load.LoadMXBean;
+import no.ion.jake.engine.load.LoadMonitor;
+import no.ion.jake.engine.load.LoadProbe;
+import no.ion.jake.engine.trace.TraceWriter;
 import no.ion.jake.graph.BuildOrder;
+import no.ion.jake.jfr.AdmissionEvent;
+import no.ion.jake.jfr.BuildEvent;
 import no.ion.jake.util.SetUtil;
 
 import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
-import java.util.stream.LongStream;
 
 import static java.util.function.Function.identity;
 
 public class BuildGraph implements AutoCloseable {
     private final JakeExecutor jakeExecutor;
     private final ScheduledExecutorService loadUpdaterService;
-    private final ThreadMXBean threadMXBean;
+    private final LoadMonitor loadMonitor;
+    private final HeapMonitor heapMonitor;
+    /** The heap usage of each started build that has not completed. */
+    private final Map<BuildId, HeapUsage> heapUsages = new ConcurrentHashMap<>();
     private final BuildOrder<BuildId> buildOrder;
     private final ArtifactRegistry artifactRegistry;
+    private final UpToDateChecker upToDateChecker;
     private final LogSink logSink;
     private final Map<BuildId, BuildInfo> builds;
+    private final BuildHistory buildHistory;
+    private final TraceWriter trace;
+    private final Map<BuildId, BuildTiming> timings = new ConcurrentHashMap<>();
+    private final Map<BuildId, UncountedMetrics> metrics = new ConcurrentHashMap<>();
+    private final Set<BuildId> succeededBuilds = ConcurrentHashMap.newKeySet();
+    /** Measures the bytes allocated by each build if collecting build metrics and supported by the JVM, otherwise null. */
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+    private final boolean keepGoing;
+    private final boolean collectMetrics;
+    private final CancellationToken externalCancellationToken;
+    /** Cancelled by the first failure, unless keepGoing, or by the external cancellation token. */
+    private final CancellationToken cancellationToken;
+    private final List<Failure> failures = new ArrayList<>();
 
     private final float targetLoad;
     private final AtomicLong loadx1000 = new AtomicLong(0L);
@@ -36,70 +64,182 @@ public class BuildGraph implements AutoCloseable {
     private final AtomicLong pendingArtificialLoadx1000 = new AtomicLong(0L);
 
     private final Object monitor = new Object();
-
+    private final SchedulerStats schedulerStats = new SchedulerStats();
+    private boolean waitingForLoad = false;
+    private volatile int activeBuilds = 0;
+    private int activeCpuBuilds = 0;
+
+    private static final float MIN_EXPECTED_LOAD = 0.1f;
+    /** A build expected to add at least this fraction of the max heap to the live heap is memory-heavy. */
+    private static final float MEMORY_HEAVY_FRACTION = 0.05f;
+    /** A memory-heavy build is deferred if the live heap would exceed this fraction of the max heap. */
+    private static final float HEAP_TARGET_FRACTION = 0.8f;
+    /** A memory-heavy build is deferred if at least this fraction of the time is spent in GC pauses. */
+    private static final float MAX_GC_PRESSURE = 0.2f;
     private static final int loadUpdateIntervalInMillis = 100;
-    private volatile long lastSumCpuTimeNanos = 0;
+    private volatile long nextLoadUpdateNanos = System.nanoTime();
 
     public BuildGraph(JakeExecutor jakeExecutor, float targetLoad, BuildOrder<BuildId> buildOrder,
-                      Collection<BuildInfo> builds, ArtifactRegistry artifactRegistry, LogSink logSink) {
+                      Collection<BuildInfo> builds, ArtifactRegistry artifactRegistry, UpToDateChecker upToDateChecker,
+                      LogSink logSink, BuildHistory buildHistory, TraceWriter trace, EngineOptions engineOptions) {
         this.jakeExecutor = jakeExecutor;
         this.targetLoad = targetLoad;
         this.buildOrder = buildOrder;
         this.artifactRegistry = artifactRegistry;
+        this.upToDateChecker = upToDateChecker;
         this.logSink = logSink;
         this.builds = builds.stream().collect(Collectors.toMap(BuildInfo::id, identity()));
-
-        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
-        if (!(threadMXBean instanceof ThreadMXBean)) {
-            // add other JVMs when needed...
-            throw new IllegalStateException("implementation requires Sun/Oracle based JVM");
-        }
-        this.threadMXBean = (ThreadMXBean) threadMXBean;
+        this.buildHistory = buildHistory;
+        this.trace = trace;
+        this.keepGoing = engineOptions.keepGoing();
+        this.collectMetrics = engineOptions.collectBuildMetrics();
+        this.externalCancellationToken = engineOptions.cancellationToken();
+        this.cancellationToken = new CancellationToken(externalCancellationToken);
+
+        // Thread CPU time is used to measure the CPU time of each build.
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
         if (!threadMXBean.isThreadCpuTimeSupported()) {
             throw new IllegalStateException("implementation requires JVM supports thread CPU time");
         }
         if (!threadMXBean.isThreadCpuTimeEnabled()) {
             threadMXBean.setThreadCpuTimeEnabled(true);
         }
+        this.allocationMXBean = engineOptions.collectBuildMetrics() ? allocationMXBeanOf(threadMXBean) : null;
+
+        this.loadMonitor = new LoadMonitor(LoadProbe.create());
+        this.heapMonitor = HeapMonitor.start(this::updateHeapUsages);
+        LoadMonitor.register(new LoadMXBean() {
+            @Override public float getMeasuredLoad() { return loadx1000.get() / 1000f; }
+            @Override public float getReservedLoad() { return artificialLoadx1000.get() / 1000f; }
+            @Override public float getTargetLoad() { return currentTargetLoad(); }
+            @Override public int getActiveBuilds() { return activeBuilds; }
+        });
 
         this.loadUpdaterService = Executors.newScheduledThreadPool(1);
         loadUpdaterService.scheduleAtFixedRate(this::updateLoad, 0, loadUpdateIntervalInMillis, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Runs all builds.  By default, the first failure cancels the running builds, and is rethrown once they have
+     * stopped.  With {@link EngineOptions#keepGoing()}, all builds not depending on a failed build are run, and an
+     * {@link AbortException} is thrown if any failed.
+     */
     public void runSync() {
+        long startNanos = System.nanoTime();
         Deque<ResultInfo> results = new ArrayDeque<>();
 
         synchronized (monitor) {
             while (true) {
+                while (!results.isEmpty()) {
+                    handleResultInfo(results.pollFirst());
+                }
+
+                if (cancellationToken.isCancelled()) {
+                    if (activeBuilds == 0) {
+                        break;
+                    }
+                    waitForEvent(false);
+                    continue;
+                }
+
                 BuildOrder.NextBuild<BuildId> nextBuild = buildOrder.calculateNextBuild();
                 if (nextBuild.isDone()) {
-                    return;
+                    break;
                 }
 
+                boolean deferredByLoad = false;
                 if (nextBuild.isReady()) {
                     if (spawnBuild(nextBuild.getReadyBuild(), results)) {
                         continue;
                     }
+                    deferredByLoad = true;
                 }
 
-                if (!results.isEmpty()) {
-                    handleResultInfo(results.pollFirst());
-                    continue;
-                }
+                waitForEvent(deferredByLoad);
+            }
+        }
+
+        trace.slice("scheduler", "build graph", Thread.currentThread(), startNanos, System.nanoTime(),
+                Map.of("builds", builds.size(), "failures", failures.size()));
+        throwFailures();
+        if (externalCancellationToken.isCancelled()) {
+            throw new AbortException("the build was cancelled");
+        }
+    }
 
-                // getting here also if load is too high.  Should sleep until the load have had a chance to lower.
-                try { monitor.wait(10); } catch (InterruptedException ignore) { }
+    /**
+     * Waits until a build completes, or if the next build was deferred by load: until the load has been
+     * re-sampled.  Must be invoked while holding the monitor.
+     */
+    private void waitForEvent(boolean deferredByLoad) {
+        long startNanos = System.nanoTime();
+        waitingForLoad = deferredByLoad;
+        try {
+            if (deferredByLoad) {
+                // updateLoad() notifies us, the timeout is a safeguard in case the load updater is delayed.
+                long nanos = nextLoadUpdateNanos - startNanos;
+                if (nanos <= 0) nanos = loadUpdateIntervalInMillis * 1_000_000L;
+                monitor.wait(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+            } else {
+                monitor.wait();
             }
+        } catch (InterruptedException ignore) {
+        } finally {
+            waitingForLoad = false;
         }
+        schedulerStats.recordWait(startNanos, System.nanoTime(), deferredByLoad);
     }
 
     private static class ResultInfo {
         private final BuildInfo buildInfo;
         private final BuildResult result;
+        private final long heapBytes;
 
-        public ResultInfo(BuildInfo buildInfo, BuildResult result) {
+        public ResultInfo(BuildInfo buildInfo, BuildResult result, long heapBytes) {
             this.buildInfo = buildInfo;
             this.result = result;
+            this.heapBytes = heapBytes;
+        }
+    }
+
+    /**
+     * The metrics of a completed build, except the files of its artifacts, which are counted by {@link #metrics()}:
+     * Walking the directories when the build completes would delay the builds depending on it.
+     */
+    private static class UncountedMetrics {
+        private final BuildTiming timing;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        private final Set<ArtifactId> dependencies;
+        private final Set<ArtifactId> publishedArtifacts;
+        private final String outcome;
+
+        private UncountedMetrics(BuildTiming timing, long cpuNanos, long allocatedBytes, Set<ArtifactId> dependencies,
+                                 Set<ArtifactId> publishedArtifacts, String outcome) {
+            this.timing = timing;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.dependencies = dependencies;
+            this.publishedArtifacts = publishedArtifacts;
+            this.outcome = outcome;
+        }
+    }
+
+    /**
+     * The contribution of a build to the live heap is estimated at each garbage collection while it runs, as the
+     * growth of the live heap since the build started, divided evenly between the running builds.  Its peak is
+     * recorded in the build history, if there was any garbage collection.
+     */
+    private static class HeapUsage {
+        private final long expectedBytes;
+        private final long liveBytesAtStart;
+        private final long gcCountAtStart;
+        private volatile long peakBytes = 0;
+
+        private HeapUsage(long expectedBytes, long liveBytesAtStart, long gcCountAtStart) {
+            this.expectedBytes = expectedBytes;
+            this.liveBytesAtStart = liveBytesAtStart;
+            this.gcCountAtStart = gcCountAtStart;
         }
     }
 
@@ -109,58 +249,231 @@ public class BuildGraph implements AutoCloseable {
             throw new IllegalStateException("build ID does not exist: " + buildId.toString());
         }
 
-        if (!loadAllowsAnotherBuild(buildInfo)) {
+        // I/O-bound builds are run on their own threads, and their CPU usage is left for the load measurements.
+        final boolean ioBound = buildInfo.build().ioBound();
+        final float expectedLoad = ioBound ? 0f : expectedLoadOf(buildId);
+        final long expectedHeapBytes = buildHistory.expectedHeapBytes(buildId);
+        // The CPU lane has as many threads as the target load, which bounds the overshoot when builds with a low
+        // expected load are started before the measured load catches up.
+        if (!ioBound && activeCpuBuilds > 0 &&
+                (activeCpuBuilds >= jakeExecutor.cpuThreads() || !allowsAnotherBuild(buildId, expectedLoad, expectedHeapBytes))) {
             return false;
         }
 
         buildOrder.reportActiveBuild(buildId);
+        ++activeBuilds;
+        if (!ioBound) ++activeCpuBuilds;
 
-        // TODO: Add something other than 1, e.g. expectedLoad + slack.
-        final long loadx1000 = 1000L;
+        final long loadx1000 = (long) (expectedLoad * 1000L);
         artificialLoadx1000.addAndGet(loadx1000);
+        heapUsages.put(buildId, new HeapUsage(expectedHeapBytes, heapMonitor.liveBytes(), heapMonitor.gcCount()));
 
-        jakeExecutor.runAsync(() -> {
+        final long queuedNanos = System.nanoTime();
+        Runnable task = () -> {
             pendingArtificialLoadx1000.addAndGet(-loadx1000);
 
+            var buildEvent = new BuildEvent();
+            buildEvent.begin();
+            long startAllocatedBytes = allocatedBytesOfCurrentThread();
+            long startNanos = System.nanoTime();
             SingleBuildDriver driver = new SingleBuildDriver(logSink);
-            BuildResult result = driver.runSync(artifactRegistry, buildInfo);
+            BuildResult result = driver.runSync(artifactRegistry, upToDateChecker, buildInfo, cancellationToken);
+            long endNanos = System.nanoTime();
+            long allocatedBytes = allocatedBytesOfCurrentThread() - startAllocatedBytes;
+            buildEvent.end();
+            HeapUsage heapUsage = heapUsages.remove(buildId);
+            long heapBytes = heapUsage.gcCountAtStart == heapMonitor.gcCount() ? -1L : heapUsage.peakBytes;
+            var timing = new BuildTiming(queuedNanos, startNanos, endNanos);
+            timings.put(buildId, timing);
+            if (collectMetrics) {
+                metrics.put(buildId, new UncountedMetrics(timing, result.cpuTime().toNanos(),
+                        allocationMXBean == null ? -1L : allocatedBytes, buildInfo.dependencies(),
+                        result.publishedArtifacts(), outcomeOf(result)));
+            }
+            commitBuildEvent(buildEvent, buildInfo, result);
+            traceBuild(buildInfo, result, queuedNanos, startNanos, endNanos);
 
             synchronized (monitor) {
-                buildOrder.reportCompletedBuild(buildId);
-                results.addLast(new ResultInfo(buildInfo, result));
+                --activeBuilds;
+                if (!ioBound) --activeCpuBuilds;
+                results.addLast(new ResultInfo(buildInfo, result, heapBytes));
+                schedulerStats.recordEvent();
                 monitor.notify();
             }
-        });
+        };
+
+        if (ioBound) {
+            jakeExecutor.runIoAsync(task);
+        } else {
+            jakeExecutor.runAsync(task);
+        }
 
         return true;
     }
 
+    private static String outcomeOf(BuildResult result) {
+        return result.cancelled() ? "cancelled" :
+                !result.success() ? "failed" :
+                result.upToDate() ? "up to date" : "built";
+    }
+
+    private static void commitBuildEvent(BuildEvent buildEvent, BuildInfo buildInfo, BuildResult result) {
+        if (!buildEvent.shouldCommit()) return;
+
+        buildEvent.buildId = buildInfo.id().namespace() + ":" + buildInfo.id().id();
+        buildEvent.module = buildInfo.namespace();
+        buildEvent.artifactsPublished = result.publishedArtifacts().stream()
+                .map(ArtifactId::artifactName)
+                .sorted()
+                .collect(Collectors.joining(","));
+        buildEvent.result = outcomeOf(result);
+        buildEvent.commit();
+    }
+
+    private void traceBuild(BuildInfo buildInfo, BuildResult result, long queuedNanos, long startNanos, long endNanos) {
+        if (!trace.enabled()) return;
+
+        trace.slice(buildInfo.build().ioBound() ? "io" : "cpu",
+                buildInfo.namespace() + ":" + buildInfo.build().name(),
+                Thread.currentThread(),
+                startNanos,
+                endNanos,
+                Map.of("module", buildInfo.namespace(),
+                        "build", buildInfo.build().name(),
+                        "cpu_ms", result.cpuTime().toNanos() / 1_000_000.0,
+                        "queued_ms", (startNanos - queuedNanos) / 1_000_000.0,
+                        "result", outcomeOf(result)));
+    }
+
+    private static class Failure {
+        private final BuildInfo buildInfo;
+        private final Throwable throwable;
+        private final int skippedBuilds;
+
+        private Failure(BuildInfo buildInfo, Throwable throwable, int skippedBuilds) {
+            this.buildInfo = buildInfo;
+            this.throwable = throwable;
+            this.skippedBuilds = skippedBuilds;
+        }
+    }
+
     private void handleResultInfo(ResultInfo resultInfo) {
         BuildResult result = resultInfo.result;
         BuildInfo completedBuild = resultInfo.buildInfo;
 
-        result.getRuntimeException().ifPresent(e -> {
-            throw e;
-        });
-        result.getError().ifPresent(e -> {
-            throw e;
-        });
+        if (result.cancelled()) {
+            // The failure that caused the cancellation has already been recorded.
+            buildOrder.reportFailedBuild(completedBuild.id());
+            return;
+        }
+
+        if (!result.upToDate()) {
+            // The duration of skipping a build says nothing about the duration of running it.
+            buildHistory.record(completedBuild.id(), result);
+            if (result.success() && resultInfo.heapBytes >= 0) {
+                buildHistory.recordHeap(completedBuild.id(), resultInfo.heapBytes);
+            }
+        }
+
+        Throwable throwable = verifyResult(completedBuild, result);
+        if (throwable == null) {
+            buildOrder.reportCompletedBuild(completedBuild.id());
+            succeededBuilds.add(completedBuild.id());
+            return;
+        }
+
+        Set<BuildId> skippedBuilds = buildOrder.reportFailedBuild(completedBuild.id());
+        failures.add(new Failure(completedBuild, throwable, skippedBuilds.size()));
+        if (!keepGoing) {
+            cancellationToken.cancel();
+        }
+    }
+
+    /** Returns the exception or error of a failed build, or null if the build succeeded. */
+    private static Throwable verifyResult(BuildInfo completedBuild, BuildResult result) {
+        if (result.getRuntimeException().isPresent()) {
+            return result.getRuntimeException().get();
+        }
+        if (result.getError().isPresent()) {
+            return result.getError().get();
+        }
 
         Set<ArtifactId> declaredArtifacts = completedBuild.production();
         Set<ArtifactId> publishedArtifacts = result.publishedArtifacts();
 
         Set<ArtifactId> unpublishedArtifacts = SetUtil.difference(declaredArtifacts, publishedArtifacts);
         if (!unpublishedArtifacts.isEmpty()) {
-            throw new BadBuildException(completedBuild.build(), "failed to publish: " +
+            return new BadBuildException(completedBuild.build(), "failed to publish: " +
                     unpublishedArtifacts.stream().map(ArtifactId::artifactName).collect(Collectors.joining(", ")));
         }
 
         Set<ArtifactId> unknownArtifacts = SetUtil.difference(publishedArtifacts, declaredArtifacts);
         if (!unknownArtifacts.isEmpty()) {
             // this is impossible at the time this comment was made
-            throw new BadBuildException(completedBuild.build(), "published extraneous artifacts: " +
+            return new BadBuildException(completedBuild.build(), "published extraneous artifacts: " +
                     unknownArtifacts.stream().map(ArtifactId::artifactName).collect(Collectors.joining(", ")));
         }
+
+        return null;
+    }
+
+    private void throwFailures() {
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        if (!keepGoing) {
+            // Builds running concurrently with the first failure may also have failed.
+            failures.subList(1, failures.size()).forEach(this::logFailure);
+
+            Throwable throwable = failures.get(0).throwable;
+            if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+            throw (RuntimeException) throwable;
+        }
+
+        failures.forEach(this::logFailure);
+        int skippedBuilds = failures.stream().mapToInt(failure -> failure.skippedBuilds).sum();
+        throw new AbortException(String.format("%d build%s failed, and %d build%s depending on them %s skipped",
+                failures.size(), failures.size() == 1 ? "" : "s",
+                skippedBuilds, skippedBuilds == 1 ? "" : "s", skippedBuilds == 1 ? "was" : "were"));
+    }
+
+    private void logFailure(Failure failure) {
+        String prefix = failure.buildInfo.namespace() + ": " + failure.buildInfo.build().name() + " failed";
+        String message = failure.throwable.getMessage();
+        if (failure.throwable instanceof JakeException && message != null && !message.isEmpty()) {
+            // Jake exceptions carry a message meant for the user, e.g. the compiler output.
+            logSink.log(Level.SEVERE, prefix + ": " + message, null);
+        } else {
+            logSink.log(Level.SEVERE, prefix, failure.throwable);
+        }
+    }
+
+    /** The timing of each completed build. */
+    public Map<BuildId, BuildTiming> timings() { return Map.copyOf(timings); }
+
+    /** The builds that succeeded, having published all their artifacts. */
+    public Set<BuildId> succeededBuilds() { return Set.copyOf(succeededBuilds); }
+
+    /**
+     * The resources used by each completed build, if {@link EngineOptions#collectBuildMetrics()}.  The files of the
+     * artifacts are counted now, after the builds, and so include any files written by later builds.
+     */
+    public Map<BuildId, BuildMetrics> metrics() {
+        return metrics.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+            UncountedMetrics uncounted = entry.getValue();
+            return new BuildMetrics(uncounted.timing, uncounted.cpuNanos, uncounted.allocatedBytes,
+                    BuildMetrics.countFiles(artifactRegistry, uncounted.dependencies),
+                    BuildMetrics.countFiles(artifactRegistry, uncounted.publishedArtifacts), uncounted.outcome);
+        }));
+    }
+
+    public String schedulerStatsSummary() {
+        synchronized (monitor) {
+            return schedulerStats.summary();
+        }
     }
 
     @Override
@@ -177,29 +490,114 @@ public class BuildGraph implements AutoCloseable {
 
             // loop around
         }
+
+        LoadMonitor.unregister();
+        heapMonitor.close();
     }
 
-    private boolean loadAllowsAnotherBuild(BuildInfo buildInfo) {
-        float currentTargetLoad = targetLoad > 0 ? targetLoad : -targetLoad * Runtime.getRuntime().availableProcessors();
+    /** The expected load of the build, bounded to avoid admitting an unlimited number of near-idle builds. */
+    private float expectedLoadOf(BuildId buildId) {
+        return Math.max(MIN_EXPECTED_LOAD, Math.min(buildHistory.expectedLoad(buildId), currentTargetLoad()));
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBeanOf(ThreadMXBean threadMXBean) {
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        var allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationMXBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return allocationMXBean;
+    }
+
+    private long allocatedBytesOfCurrentThread() {
+        return allocationMXBean == null ? 0L : allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
 
+    private float currentTargetLoad() {
+        return targetLoad > 0 ? targetLoad : -targetLoad * Runtime.getRuntime().availableProcessors();
+    }
+
+    private boolean allowsAnotherBuild(BuildId buildId, float expectedLoad, long expectedHeapBytes) {
         // If adding another builds gets us within +- 0.5 of target load, or lower.
         // The artificial load is artificial load is incremented preemptively, in case true is returned.
-        float newLoad = (loadx1000.get() + artificialLoadx1000.get()) / 1000.0f + 1f;
-        return newLoad < currentTargetLoad + 0.5f;
+        float measuredLoad = loadx1000.get() / 1000.0f;
+        float artificialLoad = artificialLoadx1000.get() / 1000.0f;
+        float targetLoad = currentTargetLoad();
+        boolean loadAllows = measuredLoad + artificialLoad + expectedLoad < targetLoad + 0.5f;
+
+        // A memory-heavy build is deferred while the heap is tight or GC is thrashing, rather than lowering the
+        // target load for all builds.  The builds started since the last GC are not yet part of the live heap.
+        long maxHeapBytes = heapMonitor.maxHeapBytes();
+        long liveBytes = heapMonitor.liveBytes();
+        long reservedHeapBytes = reservedHeapBytes();
+        float gcPressure = heapMonitor.gcPressure();
+        boolean heapAllows = expectedHeapBytes < MEMORY_HEAVY_FRACTION * maxHeapBytes ||
+                (liveBytes + reservedHeapBytes + expectedHeapBytes <= HEAP_TARGET_FRACTION * maxHeapBytes &&
+                 gcPressure < MAX_GC_PRESSURE);
+
+        var event = new AdmissionEvent();
+        if (event.shouldCommit()) {
+            event.buildId = buildId.namespace() + ":" + buildId.id();
+            event.measuredLoad = measuredLoad;
+            event.artificialLoad = artificialLoad;
+            event.expectedLoad = expectedLoad;
+            event.targetLoad = targetLoad;
+            event.liveHeap = liveBytes;
+            event.reservedHeap = reservedHeapBytes;
+            event.expectedHeap = expectedHeapBytes;
+            event.maxHeap = maxHeapBytes;
+            event.gcPressure = gcPressure;
+            event.deferred = !loadAllows || !heapAllows;
+            event.deferredByHeap = !heapAllows;
+            event.commit();
+        }
+
+        return loadAllows && heapAllows;
     }
 
-    private void updateLoad() {
-        long previousSumCpuTimes = lastSumCpuTimeNanos;
+    private long reservedHeapBytes() {
+        long gcCount = heapMonitor.gcCount();
+        return heapUsages.values().stream()
+                .filter(heapUsage -> heapUsage.gcCountAtStart == gcCount)
+                .mapToLong(heapUsage -> heapUsage.expectedBytes)
+                .sum();
+    }
+
+    /** Invoked after each garbage collection with the live heap. */
+    private void updateHeapUsages(long liveBytes) {
+        int runningBuilds = heapUsages.size();
+        for (HeapUsage heapUsage : heapUsages.values()) {
+            long bytes = (liveBytes - heapUsage.liveBytesAtStart) / Math.max(1, runningBuilds);
+            heapUsage.peakBytes = Math.max(heapUsage.peakBytes, bytes);
+        }
+    }
 
-        long[] threadIds = threadMXBean.getAllThreadIds();
-        long[] threadCpuTimesNanos = threadMXBean.getThreadCpuTime(threadIds);
-        long sumCpuTimeNanos = LongStream.of(threadCpuTimesNanos).sum();
-        long nanos = Math.max(0L, sumCpuTimeNanos - previousSumCpuTimes);
+    private void updateLoad() {
+        BuildCpuTimer.sampleAll();
 
-        float newLoad = nanos / (1000_000f * loadUpdateIntervalInMillis);
+        float newLoad = loadMonitor.sample();
         loadx1000.set((long) (newLoad * 1000L));
-        lastSumCpuTimeNanos = sumCpuTimeNanos;
 
         artificialLoadx1000.addAndGet(pendingArtificialLoadx1000.getAndSet(0L));
+        long nowNanos = System.nanoTime();
+        nextLoadUpdateNanos = nowNanos + loadUpdateIntervalInMillis * 1_000_000L;
+        trace.counter("measured load", nowNanos, newLoad);
+        trace.counter("artificial load", nowNanos, artificialLoadx1000.get() / 1000.0);
+        trace.counter("live heap MB", nowNanos, heapMonitor.liveBytes() / 1e6);
+        trace.counter("gc pressure", nowNanos, heapMonitor.gcPressure());
+
+        synchronized (monitor) {
+            trace.counter("ready builds", nowNanos, buildOrder.readyBuilds());
+            if (waitingForLoad) {
+                schedulerStats.recordEvent();
+                monitor.notify();
+            }
+        }
     }
 }
@@ -0,0 +1,195 @@
+package no.ion.jake.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * Wall time, CPU time, load, heap and outcome of earlier executions of each build of a project, used to estimate the
+ * duration and load of the next execution.
+ *
+ * <p>The history is persisted as one line per build: the namespace and build ID followed by key=value pairs,
+ * all separated by TAB.  Unknown keys are ignored, and malformed lines are dropped.</p>
+ */
+public class BuildHistory {
+    /** The expected duration of a build that has never been executed. */
+    public static final Duration DEFAULT_DURATION = Duration.ofMillis(100);
+
+    /** The expected load of a build that has never been executed. */
+    public static final float DEFAULT_LOAD = 1f;
+
+    /** The weight of the latest sample in the exponentially weighted moving averages. */
+    private static final double ALPHA = 0.3;
+
+    private final Path path;
+    private final Map<BuildId, Entry> entries;
+
+    /** Returns the history persisted at path, or an empty history if path does not exist. */
+    public static BuildHistory load(Path path) {
+        var entries = new ConcurrentHashMap<BuildId, Entry>();
+
+        if (Files.isRegularFile(path)) {
+            List<String> lines = uncheckIO(() -> Files.readAllLines(path, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 2) continue;
+                Entry entry = Entry.parse(fields);
+                if (entry != null) {
+                    entries.put(new BuildId(fields[0], fields[1]), entry);
+                }
+            }
+        }
+
+        return new BuildHistory(path, entries);
+    }
+
+    /** Returns an empty history that is never persisted. */
+    public static BuildHistory inMemory() {
+        return new BuildHistory(null, new ConcurrentHashMap<>());
+    }
+
+    private BuildHistory(Path path, Map<BuildId, Entry> entries) {
+        this.path = path;
+        this.entries = entries;
+    }
+
+    /** The smoothed wall time of earlier successful executions, or {@link #DEFAULT_DURATION} if there are none. */
+    public Duration expectedDuration(BuildId buildId) {
+        Entry entry = entries.get(buildId);
+        if (entry == null || entry.samples == 0) {
+            return DEFAULT_DURATION;
+        }
+        return Duration.ofNanos(Math.round(entry.wallMillis * 1_000_000));
+    }
+
+    /**
+     * The smoothed load of earlier successful executions, or {@link #DEFAULT_LOAD} if there are none.  The load of
+     * an execution is its CPU time divided by its wall time, i.e. the average number of cores kept busy.
+     */
+    public float expectedLoad(BuildId buildId) {
+        Entry entry = entries.get(buildId);
+        if (entry == null || entry.samples == 0) {
+            return DEFAULT_LOAD;
+        }
+        return (float) entry.load;
+    }
+
+    /**
+     * The smoothed peak contribution to the live heap of earlier executions, or 0 if it has never been measured.
+     * See BuildGraph.
+     */
+    public long expectedHeapBytes(BuildId buildId) {
+        Entry entry = entries.get(buildId);
+        return entry == null ? 0L : Math.round(entry.heapMegabytes * 1e6);
+    }
+
+    /** Records the peak contribution to the live heap measured for an execution of the build.  Thread-safe. */
+    public void recordHeap(BuildId buildId, long heapBytes) {
+        entries.compute(buildId, (id, entry) -> {
+            if (entry == null) entry = new Entry();
+            double heapMegabytes = heapBytes / 1e6;
+            entry.heapMegabytes = entry.heapMegabytes == 0 ?
+                    heapMegabytes :
+                    ALPHA * heapMegabytes + (1 - ALPHA) * entry.heapMegabytes;
+            return entry;
+        });
+    }
+
+    /** Records the execution of a build.  Only successful executions affect the expected duration.  Thread-safe. */
+    public void record(BuildId buildId, BuildResult result) {
+        entries.compute(buildId, (id, entry) -> {
+            if (entry == null) entry = new Entry();
+            entry.lastOutcome = result.success() ? Outcome.SUCCESS : Outcome.FAILURE;
+            if (result.success()) {
+                double wallMillis = result.duration().toNanos() / 1_000_000.0;
+                double cpuMillis = result.cpuTime().toNanos() / 1_000_000.0;
+                double load = wallMillis > 0 ? cpuMillis / wallMillis : DEFAULT_LOAD;
+                if (entry.samples == 0) {
+                    entry.wallMillis = wallMillis;
+                    entry.cpuMillis = cpuMillis;
+                    entry.load = load;
+                } else {
+                    entry.wallMillis = ALPHA * wallMillis + (1 - ALPHA) * entry.wallMillis;
+                    entry.cpuMillis = ALPHA * cpuMillis + (1 - ALPHA) * entry.cpuMillis;
+                    entry.load = ALPHA * load + (1 - ALPHA) * entry.load;
+                }
+                ++entry.samples;
+            }
+            return entry;
+        });
+    }
+
+    /** Writes the history to its path, creating parent directories as necessary. */
+    public void save() {
+        if (path == null) {
+            return;
+        }
+
+        List<BuildId> buildIds = new ArrayList<>(entries.keySet());
+        buildIds.sort(Comparator.comparing(BuildId::namespace).thenComparing(BuildId::id));
+
+        var content = new StringBuilder();
+        for (BuildId buildId : buildIds) {
+            content.append(buildId.namespace()).append('\t').append(buildId.id());
+            entries.get(buildId).appendTo(content);
+            content.append('\n');
+        }
+
+        uncheckIO(() -> Files.createDirectories(path.getParent()));
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        uncheckIO(() -> Files.writeString(temporaryPath, content, StandardCharsets.UTF_8));
+        uncheckIO(() -> Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+    }
+
+    private enum Outcome { SUCCESS, FAILURE }
+
+    private static class Entry {
+        private int samples = 0;
+        private double wallMillis = 0;
+        private double cpuMillis = 0;
+        private double load = DEFAULT_LOAD;
+        private double heapMegabytes = 0;
+        private Outcome lastOutcome = Outcome.SUCCESS;
+
+        private static Entry parse(String[] fields) {
+            var entry = new Entry();
+            try {
+                for (int i = 2; i < fields.length; ++i) {
+                    int equalIndex = fields[i].indexOf('=');
+                    if (equalIndex == -1) return null;
+                    String value = fields[i].substring(equalIndex + 1);
+                    switch (fields[i].substring(0, equalIndex)) {
+                        case "samples": entry.samples = Integer.parseInt(value); break;
+                        case "wall-ms": entry.wallMillis = Double.parseDouble(value); break;
+                        case "cpu-ms": entry.cpuMillis = Double.parseDouble(value); break;
+                        case "load": entry.load = Double.parseDouble(value); break;
+                        case "heap-mb": entry.heapMegabytes = Double.parseDouble(value); break;
+                        case "outcome": entry.lastOutcome = Outcome.valueOf(value); break;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return entry;
+        }
+
+        private void appendTo(StringBuilder builder) {
+            builder.append("\tsamples=").append(samples)
+                    .append(String.format(Locale.ROOT, "\twall-ms=%.3f", wallMillis))
+                    .append(String.format(Locale.ROOT, "\tcpu-ms=%.3f", cpuMillis))
+                    .append(String.format(Locale.ROOT, "\tload=%.3f", load))
+                    .append(String.format(Locale.ROOT, "\theap-mb=%.1f", heapMegabytes))
+                    .append("\toutcome=").append(lastOutcome.name());
+        }
+    }
+}
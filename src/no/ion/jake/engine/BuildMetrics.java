@@ -0,0 +1,74 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.io.FileSet2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/** The resources used by a completed build, see {@link EngineOptions#collectBuildMetrics()}. */
+public class BuildMetrics {
+    private final BuildTiming timing;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final long filesIn;
+    private final long filesOut;
+    private final String outcome;
+
+    public BuildMetrics(BuildTiming timing, long cpuNanos, long allocatedBytes, long filesIn, long filesOut,
+                        String outcome) {
+        this.timing = timing;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.filesIn = filesIn;
+        this.filesOut = filesOut;
+        this.outcome = outcome;
+    }
+
+    public BuildTiming timing() { return timing; }
+    public long wallNanos() { return timing.endNanos() - timing.startNanos(); }
+    public long cpuNanos() { return cpuNanos; }
+
+    /** The bytes allocated by the thread running the build, or -1 if the JVM does not support measuring it. */
+    public long allocatedBytes() { return allocatedBytes; }
+
+    /** The number of files in the Path and FileSet2 artifacts the build depends on. */
+    public long filesIn() { return filesIn; }
+
+    /** The number of files in the Path and FileSet2 artifacts published by the build. */
+    public long filesOut() { return filesOut; }
+
+    /** "built", "up to date", "failed", or "cancelled". */
+    public String outcome() { return outcome; }
+
+    /** Counts the files of the published Path and FileSet2 artifacts, where a directory counts its regular files. */
+    static long countFiles(ArtifactRegistry artifactRegistry, Set<ArtifactId> artifactIds) {
+        long files = 0;
+        for (ArtifactId artifactId : artifactIds) {
+            ArtifactImpl<?> artifact = artifactRegistry.artifactOf(artifactId);
+            if (artifact.instanceClass() == Path.class) {
+                Path detail = (Path) artifact.detail();
+                files += countFiles(artifactRegistry.buildOf(artifact.buildId()).moduleContext().resolve(detail));
+            } else if (artifact.instanceClass() == FileSet2.class) {
+                files += ((FileSet2) artifact.detail()).size();
+            }
+        }
+        return files;
+    }
+
+    private static long countFiles(Path path) {
+        if (!Files.isDirectory(path)) {
+            return Files.isRegularFile(path) ? 1 : 0;
+        }
+
+        try (Stream<Path> paths = Files.walk(path)) {
+            return paths.filter(Files::isRegularFile).count();
+        } catch (IOException | UncheckedIOException e) {
+            // The directory may be modified by a concurrent build, e.g. one removing stale files.
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.LogSink;
+import no.ion.jake.util.Json;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * The resources used by each build, sorted by its contribution to the actual critical path (see {@link ScheduleReport}),
+ * and then by wall time.
+ *
+ * <p>The contribution of a build on the critical path is the time from the completion of the build preceding it on
+ * the path, to its own completion, including the time it waited to be scheduled.  The contributions sum to the
+ * wall time of all builds, and are zero for builds off the path.  The wait of a build is the time from the completion
+ * of its last dependency, to its start.</p>
+ */
+class BuildMetricsReport {
+    private final long wallNanos;
+    private final List<Row> rows;
+
+    private static class Row {
+        private final BuildId buildId;
+        private final BuildMetrics metrics;
+        private final long criticalPathNanos;
+        private final long waitNanos;
+
+        private Row(BuildId buildId, BuildMetrics metrics, long criticalPathNanos, long waitNanos) {
+            this.buildId = buildId;
+            this.metrics = metrics;
+            this.criticalPathNanos = criticalPathNanos;
+            this.waitNanos = waitNanos;
+        }
+    }
+
+    BuildMetricsReport(Map<BuildId, BuildInfo> builds, Map<BuildId, BuildMetrics> metrics) {
+        Map<BuildId, BuildTiming> timings = metrics.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().timing()));
+        long originNanos = timings.values().stream().mapToLong(BuildTiming::queuedNanos).min().orElse(0L);
+        long endNanos = timings.values().stream().mapToLong(BuildTiming::endNanos).max().orElse(0L);
+        this.wallNanos = endNanos - originNanos;
+
+        var criticalPathNanos = new HashMap<BuildId, Long>();
+        long previousEndNanos = originNanos;
+        for (BuildId buildId : ScheduleReport.actualCriticalPath(builds, timings)) {
+            long buildEndNanos = timings.get(buildId).endNanos();
+            criticalPathNanos.put(buildId, buildEndNanos - previousEndNanos);
+            previousEndNanos = buildEndNanos;
+        }
+
+        var rows = new ArrayList<Row>(metrics.size());
+        metrics.forEach((buildId, buildMetrics) -> {
+            long readyNanos = originNanos;
+            for (BuildId dependency : builds.get(buildId).buildDependencies()) {
+                BuildTiming timing = timings.get(dependency);
+                if (timing != null) {
+                    readyNanos = Math.max(readyNanos, timing.endNanos());
+                }
+            }
+            long waitNanos = Math.max(0L, buildMetrics.timing().startNanos() - readyNanos);
+            rows.add(new Row(buildId, buildMetrics, criticalPathNanos.getOrDefault(buildId, 0L), waitNanos));
+        });
+        rows.sort(Comparator.comparingLong((Row row) -> row.criticalPathNanos).reversed()
+                .thenComparing(Comparator.comparingLong((Row row) -> row.metrics.wallNanos()).reversed())
+                .thenComparing(row -> toString(row.buildId)));
+        this.rows = rows;
+    }
+
+    void log(LogSink logSink) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        logSink.log(Level.INFO, String.format(Locale.ROOT, "metrics of %d builds in %.3f s, by contribution to the critical path:",
+                rows.size(), seconds(wallNanos)), null);
+        logSink.log(Level.INFO, String.format(Locale.ROOT, "  %8s %8s %8s %8s %10s %7s %7s  %s",
+                "critical", "waited", "wall", "cpu", "allocated", "in", "out", "build"), null);
+        for (Row row : rows) {
+            BuildMetrics metrics = row.metrics;
+            String allocated = metrics.allocatedBytes() < 0 ?
+                    "-" :
+                    String.format(Locale.ROOT, "%.1f MB", metrics.allocatedBytes() / 1e6);
+            String outcome = metrics.outcome().equals("built") ? "" : " (" + metrics.outcome() + ")";
+            logSink.log(Level.INFO, String.format(Locale.ROOT, "  %8.3f %8.3f %8.3f %8.3f %10s %7d %7d  %s%s",
+                    seconds(row.criticalPathNanos), seconds(row.waitNanos), seconds(metrics.wallNanos()),
+                    seconds(metrics.cpuNanos()), allocated, metrics.filesIn(), metrics.filesOut(),
+                    toString(row.buildId), outcome), null);
+        }
+    }
+
+    /**
+     * Writes the report as a JSON object with "wall_ms", and "builds" with an object per build in the order of the
+     * table.  Durations are in milliseconds, and "allocated_bytes" is -1 if it could not be measured.
+     */
+    void write(Path path) {
+        var json = new StringBuilder();
+        json.append("{\n  \"wall_ms\": ").append(millis(wallNanos)).append(",\n  \"builds\": [");
+        for (int i = 0; i < rows.size(); ++i) {
+            Row row = rows.get(i);
+            BuildMetrics metrics = row.metrics;
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"module\": ");
+            Json.appendString(json, row.buildId.namespace()).append(", \"build\": ");
+            Json.appendString(json, row.buildId.id()).append(", \"result\": ");
+            Json.appendString(json, metrics.outcome())
+                    .append(", \"critical_path_ms\": ").append(millis(row.criticalPathNanos))
+                    .append(", \"waited_ms\": ").append(millis(row.waitNanos))
+                    .append(", \"wall_ms\": ").append(millis(metrics.wallNanos()))
+                    .append(", \"cpu_ms\": ").append(millis(metrics.cpuNanos()))
+                    .append(", \"allocated_bytes\": ").append(metrics.allocatedBytes())
+                    .append(", \"files_in\": ").append(metrics.filesIn())
+                    .append(", \"files_out\": ").append(metrics.filesOut())
+                    .append('}');
+        }
+        json.append("\n  ]\n}\n");
+
+        uncheckIO(() -> Files.writeString(path, json, StandardCharsets.UTF_8));
+    }
+
+    private static String toString(BuildId buildId) { return buildId.namespace() + ":" + buildId.id(); }
+
+    private static double seconds(long nanos) { return nanos / 1e9; }
+
+    private static String millis(long nanos) { return String.format(Locale.ROOT, "%.3f", nanos / 1e6); }
+}
@@ -1,5 +1,7 @@
 package no.ion.jake.engine;
 
+import no.ion.jake.build.BuildCancelledException;
+
 import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
@@ -7,33 +9,54 @@ import java.util.Set;
 
 public class BuildResult {
     private final Duration duration;
+    private final Duration cpuTime;
     private final Set<ArtifactId> artifactIds;
     private final Optional<RuntimeException> exception;
     private final Optional<Error> error;
+    private final boolean upToDate;
 
     public static BuildResult fromSuccess(BuildContextImpl context) {
-        return new BuildResult(context.durationUpToNow(), context.publishedArtifacts(), null, null);
+        return new BuildResult(context.durationUpToNow(), context.cpuTimeUpToNow(), context.publishedArtifacts(), null, null, false);
+    }
+
+    /** The build was skipped since it was up to date, and its artifacts were republished. */
+    public static BuildResult fromUpToDate(BuildContextImpl context) {
+        return new BuildResult(context.durationUpToNow(), context.cpuTimeUpToNow(), context.publishedArtifacts(), null, null, true);
     }
 
     public static BuildResult fromException(BuildContextImpl context, RuntimeException exception) {
-        return new BuildResult(context.durationUpToNow(), context.publishedArtifacts(), exception, null);
+        return new BuildResult(context.durationUpToNow(), context.cpuTimeUpToNow(), context.publishedArtifacts(), exception, null, false);
     }
 
     public static BuildResult fromError(BuildContextImpl context, Error error) {
-        return new BuildResult(context.durationUpToNow(), context.publishedArtifacts(), null, error);
+        return new BuildResult(context.durationUpToNow(), context.cpuTimeUpToNow(), context.publishedArtifacts(), null, error, false);
     }
 
-    private BuildResult(Duration duration, Set<ArtifactId> artifactIds, RuntimeException exception, Error error) {
+    private BuildResult(Duration duration, Duration cpuTime, Set<ArtifactId> artifactIds, RuntimeException exception,
+                        Error error, boolean upToDate) {
         this.duration = duration;
+        this.cpuTime = cpuTime;
+        this.upToDate = upToDate;
         this.artifactIds = Objects.requireNonNull(artifactIds, "artifactIds cannot be null");
         this.exception = Optional.ofNullable(exception);
         this.error = Optional.ofNullable(error);
     }
 
+    public Duration duration() { return duration; }
+    public Duration cpuTime() { return cpuTime; }
+
+    /** Whether the build was skipped because it was up to date. */
+    public boolean upToDate() { return upToDate; }
+
     public boolean success() {
         return exception.isEmpty() && error.isEmpty();
     }
 
+    /** Whether the build stopped because it was cancelled. */
+    public boolean cancelled() {
+        return exception.map(e -> e instanceof BuildCancelledException).orElse(false);
+    }
+
     public Optional<RuntimeException> getRuntimeException() {
         return exception;
     }
@@ -2,27 +2,65 @@ package no.ion.jake.engine;
 
 import no.ion.jake.LogSink;
 
+import java.util.Optional;
+import java.util.logging.Level;
+
 public class BuildRunner {
     private final ArtifactRegistry artifactRegistry;
+    private final UpToDateChecker upToDateChecker;
     private final BuildInfo buildInfo;
     private final LogSink logSink;
+    private final CancellationToken cancellationToken;
 
-    public BuildRunner(ArtifactRegistry artifactRegistry, BuildInfo buildInfo, LogSink logSink) {
+    public BuildRunner(ArtifactRegistry artifactRegistry, UpToDateChecker upToDateChecker, BuildInfo buildInfo,
+                       LogSink logSink, CancellationToken cancellationToken) {
         this.artifactRegistry = artifactRegistry;
+        this.upToDateChecker = upToDateChecker;
         this.buildInfo = buildInfo;
         this.logSink = logSink;
+        this.cancellationToken = cancellationToken;
     }
 
     public BuildResult runSync() {
-        var context = new BuildContextImpl(artifactRegistry, logSink, buildInfo);
+        var context = new BuildContextImpl(artifactRegistry, logSink, buildInfo, cancellationToken,
+                upToDateChecker.fileDigests());
+        Optional<String> fingerprint = Optional.empty();
+        boolean upToDate = false;
         try (context) {
-            buildInfo.build().build(context);
+            fingerprint = upToDateChecker.fingerprintOf(buildInfo);
+            if (fingerprint.isPresent() && upToDateChecker.republishIfUpToDate(buildInfo, fingerprint.get(), context)) {
+                upToDate = true;
+            } else {
+                buildInfo.build().build(context);
+            }
         } catch (RuntimeException exception) {
+            forgetIfFingerprinted(fingerprint);
             return BuildResult.fromException(context, exception);
         } catch (Error error) {
+            forgetIfFingerprinted(fingerprint);
             return BuildResult.fromError(context, error);
         }
 
+        if (upToDate) {
+            return BuildResult.fromUpToDate(context);
+        }
+
+        try {
+            fingerprint.ifPresent(value -> upToDateChecker.record(buildInfo, value));
+        } catch (RuntimeException exception) {
+            // E.g. a full disk, or a blob evicted by another jake process.  The build succeeded nevertheless, and
+            // without its record it is merely run again next time.
+            forgetIfFingerprinted(fingerprint);
+            logSink.log(Level.WARNING, buildInfo.id().namespace() + " failed to record " + buildInfo.build().name() +
+                    " for the action cache: " + exception, null);
+        }
+
         return BuildResult.fromSuccess(context);
     }
+
+    private void forgetIfFingerprinted(Optional<String> fingerprint) {
+        if (fingerprint.isPresent()) {
+            upToDateChecker.forget(buildInfo);
+        }
+    }
 }
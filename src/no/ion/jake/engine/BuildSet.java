@@ -1,50 +1,77 @@
 package no.ion.jake.engine;
 
 import no.ion.jake.LogSink;
+import no.ion.jake.UserError;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.ModuleContext;
+import no.ion.jake.build.TargetPattern;
+import no.ion.jake.engine.cache.ActionCache;
+import no.ion.jake.engine.trace.TraceWriter;
 import no.ion.jake.graph.BuildMeta;
 import no.ion.jake.graph.BuildOrder;
+import no.ion.jake.graph.BuildOrderFactory;
 import no.ion.jake.graph.BuildOrderImpl;
+import no.ion.jake.graph.CriticalPathOrder;
+import no.ion.jake.graph.ScheduleSimulator;
+import no.ion.jake.graph.SchedulingPolicy;
 import no.ion.jake.graphviz.Graphviz;
+import no.ion.jake.io.FileDigests;
 
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
+import static java.util.function.Function.identity;
 import static no.ion.jake.util.Exceptions.uncheckIO;
 
-public class BuildSet {
-    private final Object monitor = new Object();
-    private final HashMap<ArtifactId, ArtifactImpl<?>> artifacts = new HashMap<>();
-    private final HashMap<BuildId, BuildInfo> builds = new HashMap<>();
+public class BuildSet implements ArtifactRegistry {
+    private static final Duration REMOTE_UPLOAD_TIMEOUT = Duration.ofMinutes(1);
+
+    private final ConcurrentHashMap<ArtifactId, ArtifactImpl<?>> artifacts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<BuildId, BuildInfo> builds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<ArtifactId>> targets = new ConcurrentHashMap<>();
+    /** The builds that succeeded the last time they were run, whose artifacts are therefore published. */
+    private final Set<BuildId> succeededBuilds = ConcurrentHashMap.newKeySet();
     private final JakeExecutor jakeExecutor;
     private final LogSink logSink;
+    private final BuildHistory buildHistory;
+    private final FileDigests fileDigests;
+    private final ActionCache actionCache;
+    private final EngineOptions engineOptions;
 
-    public BuildSet(JakeExecutor jakeExecutor, LogSink logSink) {
+    public BuildSet(JakeExecutor jakeExecutor, LogSink logSink, BuildHistory buildHistory, FileDigests fileDigests,
+                    ActionCache actionCache, EngineOptions engineOptions) {
         this.jakeExecutor = jakeExecutor;
         this.logSink = logSink;
+        this.buildHistory = buildHistory;
+        this.fileDigests = fileDigests;
+        this.actionCache = actionCache;
+        this.engineOptions = engineOptions;
     }
 
     public <T> ArtifactImpl<T> newArtifact(Class<T> artifactClass, String namespace, String name) {
         var artifactId = new ArtifactId(namespace, name);
         var artifact = new ArtifactImpl<>(artifactId, artifactClass);
 
-        synchronized (monitor) {
-            if (artifacts.put(artifactId, artifact) != null) {
-                throw new IllegalArgumentException("duplicate artifact: " + artifactId.toString());
-            }
+        if (artifacts.putIfAbsent(artifactId, artifact) != null) {
+            throw new IllegalArgumentException("duplicate artifact: " + artifactId.toString());
         }
 
         return artifact;
@@ -62,133 +89,267 @@ public class BuildSet {
 
         BuildId buildId = new BuildId(namespace, build.name());
         Set<ArtifactId> productionSet = production.stream()
-                // TODO: Re-evaluate thread-safety
                 .peek(artifactImpl -> artifactImpl.setBuildId(buildId))
                 .map(ArtifactImpl::artifactId)
                 .collect(Collectors.toSet());
 
         var info = new BuildInfo(buildId, moduleContext, namespace, build, dependencySet, productionSet, buildIdDependencies);
-        synchronized (monitor) {
-            if (!artifacts.keySet().containsAll(dependencySet)) {
-                throw new IllegalArgumentException(buildId.toString() + " depends on artifacts that no-one are producing");
+        if (!artifacts.keySet().containsAll(dependencySet)) {
+            throw new IllegalArgumentException(buildId.toString() + " depends on artifacts that no-one are producing");
+        }
+
+        if (builds.putIfAbsent(buildId, info) != null) {
+            throw new IllegalArgumentException("duplicate build: " + buildId.toString());
+        }
+    }
+
+    public void addTarget(String moduleName, String name, Artifact<?> artifact) {
+        ArtifactId artifactId = verifyArtifact(artifact).artifactId();
+        targets.computeIfAbsent(moduleName + ":" + name, key -> ConcurrentHashMap.newKeySet()).add(artifactId);
+    }
+
+    public void buildEverything() {
+        build(TargetPattern.everything());
+    }
+
+    /** Runs the builds producing the targets, and the builds they depend on. */
+    public void build(TargetPattern targetPattern) {
+        build(buildsOf(targetPattern));
+    }
+
+    /**
+     * Runs the builds of {@link #build(TargetPattern)} that watch a directory containing a changed path, and the builds
+     * depending on them, directly or indirectly.  Builds that did not succeed the last time they were run are also run.
+     * The other builds keep the artifacts they published when they were last run.
+     */
+    public void rebuild(TargetPattern targetPattern, Set<Path> changedPaths) {
+        Map<BuildId, BuildInfo> builds = buildsAffectedBy(changedPaths, buildsOf(targetPattern));
+        if (builds.isEmpty()) {
+            logSink.log(Level.INFO, "no builds depend on the changed files", null);
+            return;
+        }
+        build(builds);
+    }
+
+    private void build(Map<BuildId, BuildInfo> builds) {
+        TraceWriter trace = engineOptions.tracePath().map(TraceWriter::open).orElseGet(TraceWriter::disabled);
+        try {
+            build(builds, trace);
+        } finally {
+            try {
+                trace.close();
+            } catch (UncheckedIOException e) {
+                logSink.log(Level.WARNING, "failed to write trace: " + e.getCause().getMessage(), null);
             }
+        }
+    }
+
+    private void build(Map<BuildId, BuildInfo> builds, TraceWriter trace) {
+        long startNanos = System.nanoTime();
+        Map<BuildId, Duration> expectedDurations = expectedDurationsOf(builds);
+
+        List<BuildMeta<BuildId>> buildMetas = buildMetasOf(builds, expectedDurations);
 
-            if (builds.putIfAbsent(buildId, info) != null) {
-                throw new IllegalArgumentException("duplicate build: " + buildId.toString());
+        CriticalPathOrder<BuildId> criticalPathOrder = CriticalPathOrder.order(buildMetas, engineOptions.schedulingPolicy());
+        BuildOrder<BuildId> buildOrder = new BuildOrderImpl<>(criticalPathOrder);
+        trace.slice("scheduler", "order builds", Thread.currentThread(), startNanos, System.nanoTime(),
+                Map.of("builds", builds.size()));
+        var upToDateChecker = new UpToDateChecker(this, fileDigests, actionCache, !engineOptions.rebuild());
+        try (BuildGraph buildGraph = new BuildGraph(jakeExecutor, jakeExecutor.targetLoad(), buildOrder, builds.values(),
+                this, upToDateChecker, logSink, buildHistory, trace, engineOptions)) {
+            try {
+                buildGraph.runSync();
+            } finally {
+                succeededBuilds.removeAll(builds.keySet());
+                succeededBuilds.addAll(buildGraph.succeededBuilds());
+                if (engineOptions.reportSchedule()) {
+                    new ScheduleReport(criticalPathOrder.predictedCriticalPath(), expectedDurations, Map.copyOf(builds),
+                            buildGraph.timings()).log(logSink);
+                }
+                if (engineOptions.collectBuildMetrics()) {
+                    reportBuildMetrics(new BuildMetricsReport(Map.copyOf(builds), buildGraph.metrics()));
+                }
+            }
+            if (engineOptions.reportSchedulerStats()) {
+                logSink.log(Level.INFO, buildGraph.schedulerStatsSummary(), null);
+            }
+        } finally {
+            long finishNanos = System.nanoTime();
+            buildHistory.save();
+            fileDigests.save();
+            // The uploads read the blobs from the local cache, so evict only after they are done.
+            actionCache.remoteCache().ifPresent(remoteCache -> remoteCache.awaitUploads(REMOTE_UPLOAD_TIMEOUT));
+            actionCache.evict();
+            if (actionCache.hits() + actionCache.misses() > 0) {
+                logSink.log(Level.INFO, actionCache.statsSummary(), null);
             }
+            actionCache.remoteCache().ifPresent(remoteCache -> logSink.log(Level.INFO, remoteCache.statsSummary(), null));
+            trace.slice("scheduler", "save state", Thread.currentThread(), finishNanos, System.nanoTime(), Map.of());
         }
     }
 
-    public void buildEverything() {
-        List<BuildMeta<BuildId>> buildMetas = builds.values().stream()
-                .map(buildInfo -> new BuildMeta<BuildId>() {
-                    @Override
-                    public BuildId id() {
-                        return buildInfo.id();
-                    }
-
-                    @Override
-                    public Duration expectedBuildDuration() {
-                        switch (buildInfo.id().toString()) {
-                            case "check abi in module vespajlib": return Duration.ofMillis(51);
-                            case "check abi in module yolean": return Duration.ofMillis(45);
-                            case "downloading com.fasterxml.jackson.core:jackson-annotations:2.8.11 in module maven": return Duration.ofMillis(0);
-                            case "downloading com.fasterxml.jackson.core:jackson-core:2.8.11 in module maven": return Duration.ofMillis(0);
-                            case "downloading com.fasterxml.jackson.core:jackson-databind:2.8.11.6 in module maven": return Duration.ofMillis(0);
-                            case "downloading com.google.guava:guava:20.0 in module maven": return Duration.ofMillis(0);
-                            case "downloading com.google.inject:guice:3.0:no_aop in module maven": return Duration.ofMillis(0);
-                            case "downloading com.google.jimfs:jimfs:1.1 in module maven": return Duration.ofMillis(0);
-                            case "downloading com.yahoo.vespa:annotations:7-SNAPSHOT in module maven": return Duration.ofMillis(0);
-                            case "downloading junit:junit:4.12 in module maven": return Duration.ofMillis(0);
-                            case "downloading net.bytebuddy:byte-buddy-agent:1.9.10 in module maven": return Duration.ofMillis(0);
-                            case "downloading net.bytebuddy:byte-buddy:1.9.10 in module maven": return Duration.ofMillis(0);
-                            case "downloading net.java.dev.jna:jna:4.5.2 in module maven": return Duration.ofMillis(0);
-                            case "downloading org.apache.commons:commons-exec:1.3 in module maven": return Duration.ofMillis(0);
-                            case "downloading org.hamcrest:hamcrest-core:1.3 in module maven": return Duration.ofMillis(0);
-                            case "downloading org.hamcrest:hamcrest-library:1.3 in module maven": return Duration.ofMillis(0);
-                            case "downloading org.lz4:lz4-java:1.7.1 in module maven": return Duration.ofMillis(0);
-                            case "downloading org.mockito:mockito-core:3.1.0 in module maven": return Duration.ofMillis(0);
-                            case "downloading org.objenesis:objenesis:2.6 in module maven": return Duration.ofMillis(0);
-                            case "downloading uk.co.datumedge:hamcrest-json:0.2 in module maven": return Duration.ofMillis(0);
-                            case "finding java source in module yolean": return Duration.ofMillis(14);
-                            case "finding java source in module testutil": return Duration.ofMillis(14);
-                            case "finding java source in module vespajlib": return Duration.ofMillis(20);
-                            case "finding test source in module yolean": return Duration.ofMillis(14);
-                            case "finding test source in module testutil": return Duration.ofMillis(14);
-                            case "finding test source in module vespajlib": return Duration.ofMillis(18);
-                            case "generate bundle classpath mappings file in module vespajlib": return Duration.ofMillis(0);
-                            case "generate bundle classpath mappings file in module yolean": return Duration.ofMillis(141);
-                            case "generate javadoc in module testutil": return Duration.ofMillis(510);
-                            case "generate javadoc in module vespajlib": return Duration.ofMillis(1506);
-                            case "generate javadoc in module yolean": return Duration.ofMillis(391);
-                            case "install of com/yahoo/vespa/testutil/7-SNAPSHOT/testutil-7-SNAPSHOT-javadoc.jar in module testutil": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/testutil/7-SNAPSHOT/testutil-7-SNAPSHOT-sources.jar in module testutil": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/testutil/7-SNAPSHOT/testutil-7-SNAPSHOT.jar in module testutil": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/testutil/7-SNAPSHOT/testutil-7-SNAPSHOT.pom in module testutil": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/vespajlib/7-SNAPSHOT/vespajlib-7-SNAPSHOT-javadoc.jar in module vespajlib": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/vespajlib/7-SNAPSHOT/vespajlib-7-SNAPSHOT-sources.jar in module vespajlib": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/vespajlib/7-SNAPSHOT/vespajlib-7-SNAPSHOT.jar in module vespajlib": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/vespajlib/7-SNAPSHOT/vespajlib-7-SNAPSHOT.pom in module vespajlib": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/yolean/7-SNAPSHOT/yolean-7-SNAPSHOT-javadoc.jar in module yolean": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/yolean/7-SNAPSHOT/yolean-7-SNAPSHOT-sources.jar in module yolean": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/yolean/7-SNAPSHOT/yolean-7-SNAPSHOT.jar in module yolean": return Duration.ofMillis(10);
-                            case "install of com/yahoo/vespa/yolean/7-SNAPSHOT/yolean-7-SNAPSHOT.pom in module yolean": return Duration.ofMillis(10);
-                            case "jar in module vespajlib": return Duration.ofMillis(82);
-                            case "jar in module yolean": return Duration.ofMillis(5);
-                            case "jar with dependencies in module vespajlib": return Duration.ofMillis(50);
-                            case "jar with dependencies in module yolean": return Duration.ofMillis(5);
-                            case "java archive in module testutil": return Duration.ofMillis(2);
-                            case "javadoc archive in module testutil": return Duration.ofMillis(28);
-                            case "javadoc archive in module vespajlib": return Duration.ofMillis(60);
-                            case "javadoc archive in module yolean": return Duration.ofMillis(29);
-                            case "osgi manifest in module vespajlib": return Duration.ofMillis(110);
-                            case "osgi manifest in module yolean": return Duration.ofMillis(322);
-                            case "source archive in module testutil": return Duration.ofMillis(28);
-                            case "source archive in module vespajlib": return Duration.ofMillis(55);
-                            case "source archive in module yolean": return Duration.ofMillis(29);
-                            case "source compilation in module testutil": return Duration.ofMillis(469);
-                            case "source compilation in module vespajlib": return Duration.ofMillis(1216);
-                            case "source compilation in module yolean": return Duration.ofMillis(627);
-                            case "source in module testutil": return Duration.ofMillis(0);
-                            case "source in module vespajlib": return Duration.ofMillis(0);
-                            case "source in module yolean": return Duration.ofMillis(0);
-                            case "test run in module testutil": return Duration.ofMillis(9);
-                            case "test run in module vespajlib": return Duration.ofMillis(1961);
-                            case "test run in module yolean": return Duration.ofMillis(230);
-                            case "test source compilation in module testutil": return Duration.ofMillis(73);
-                            case "test source compilation in module vespajlib": return Duration.ofMillis(1243);
-                            case "test source compilation in module yolean": return Duration.ofMillis(356);
-                        }
-
-                        throw new IllegalArgumentException("duration not known for: " + buildInfo.id().toString());
-                        // TODO: Get this from earlier runs
-                        // return Duration.ofMillis(100);
-                    }
-
-                    @Override
-                    public float expectedLoad() {
-                        // TODO: Get this from earlier runs.
-                        return 1f;
-                    }
-
-                    @Override
-                    public Set<BuildId> dependencies() {
-                        return buildInfo.buildDependencies();
-                    }
-
-                    @Override
-                    public String toString() {
-                        return "BuildMeta{" + buildInfo.id() + "}";
-                    }
-                })
+    /**
+     * Simulates building the targets with each scheduling policy on each of the core counts, with the durations and
+     * loads recorded in the build history, and logs the makespan, utilisation and idle gaps.  No builds are run.
+     */
+    public void simulate(TargetPattern targetPattern, List<Float> coreCounts) {
+        Map<BuildId, BuildInfo> builds = buildsOf(targetPattern);
+        var buildMetas = new ArrayList<>(buildMetasOf(builds, expectedDurationsOf(builds)));
+        // The order of equal builds depends on the order of the list, which must not depend on the iteration order of a map.
+        buildMetas.sort(Comparator.comparing((BuildMeta<BuildId> buildMeta) -> buildMeta.id().namespace())
+                .thenComparing(buildMeta -> buildMeta.id().id()));
+
+        var simulator = new ScheduleSimulator<>(buildMetas);
+        var policies = new LinkedHashMap<String, BuildOrderFactory<BuildId>>();
+        for (SchedulingPolicy policy : SchedulingPolicy.values()) {
+            policies.put(policy.policyName(), BuildOrderImpl.factoryFor(policy));
+        }
+        new SimulationReport(simulator, policies, coreCounts).log(logSink, buildMetas.size());
+    }
+
+    private Map<BuildId, BuildInfo> buildsOf(TargetPattern targetPattern) {
+        return targetPattern.buildsEverything() ? Map.copyOf(this.builds) : buildsNeededFor(targetPattern);
+    }
+
+    private Map<BuildId, Duration> expectedDurationsOf(Map<BuildId, BuildInfo> builds) {
+        return builds.keySet().stream().collect(Collectors.toMap(identity(), buildHistory::expectedDuration));
+    }
+
+    private List<BuildMeta<BuildId>> buildMetasOf(Map<BuildId, BuildInfo> builds, Map<BuildId, Duration> expectedDurations) {
+        return builds.values().stream()
+                .map(buildInfo -> buildMetaOf(buildInfo, builds, expectedDurations))
                 .collect(Collectors.toList());
+    }
 
-        BuildOrder<BuildId> buildOrder = BuildOrderImpl.make(buildMetas);
-        try (BuildGraph buildGraph = new BuildGraph(jakeExecutor, jakeExecutor.targetLoad(), buildOrder, builds.values(),
-                this::verifyArtifact, logSink)) {
-            buildGraph.runSync();
+    private BuildMeta<BuildId> buildMetaOf(BuildInfo buildInfo, Map<BuildId, BuildInfo> builds,
+                                           Map<BuildId, Duration> expectedDurations) {
+        // A dependency outside the builds is up to date, see rebuild().
+        Set<BuildId> dependencies = buildInfo.buildDependencies().stream()
+                .filter(builds::containsKey)
+                .collect(Collectors.toSet());
+        return new BuildMeta<BuildId>() {
+            @Override
+            public BuildId id() {
+                return buildInfo.id();
+            }
+
+            @Override
+            public Duration expectedBuildDuration() {
+                return expectedDurations.get(buildInfo.id());
+            }
+
+            @Override
+            public float expectedLoad() {
+                return buildHistory.expectedLoad(buildInfo.id());
+            }
+
+            @Override
+            public boolean ioBound() {
+                return buildInfo.build().ioBound();
+            }
+
+            @Override
+            public Set<BuildId> dependencies() {
+                return dependencies;
+            }
+
+            @Override
+            public String toString() {
+                return "BuildMeta{" + buildInfo.id() + "}";
+            }
+        };
+    }
+
+    private void reportBuildMetrics(BuildMetricsReport report) {
+        if (engineOptions.reportBuildMetrics()) {
+            report.log(logSink);
+        }
+        engineOptions.buildMetricsPath().ifPresent(path -> {
+            try {
+                report.write(path);
+            } catch (UncheckedIOException e) {
+                logSink.log(Level.WARNING, "failed to write build metrics: " + e.getCause().getMessage(), null);
+            }
+        });
+    }
+
+    private Map<BuildId, BuildInfo> buildsNeededFor(TargetPattern targetPattern) {
+        var needed = new HashMap<BuildId, BuildInfo>();
+        var pending = new ArrayDeque<BuildId>();
+        for (TargetPattern.Target target : targetPattern.targets()) {
+            for (ArtifactId artifactId : artifactsOf(target)) {
+                ArtifactImpl<?> artifact = artifacts.get(artifactId);
+                if (!artifact.hasBuildId()) {
+                    throw new UserError("no build produces the target " + target + " (artifact " + artifactId + ")");
+                }
+                pending.add(artifact.buildId());
+            }
         }
 
+        while (!pending.isEmpty()) {
+            BuildInfo buildInfo = builds.get(pending.poll());
+            if (needed.putIfAbsent(buildInfo.id(), buildInfo) == null) {
+                pending.addAll(buildInfo.buildDependencies());
+            }
+        }
+
+        return needed;
+    }
+
+    /**
+     * Returns the builds watching a changed path, and those that did not succeed when last run, together with the builds
+     * depending on them, directly or indirectly.  Only the given builds are considered.
+     */
+    private Map<BuildId, BuildInfo> buildsAffectedBy(Set<Path> changedPaths, Map<BuildId, BuildInfo> builds) {
+        Set<Path> absoluteChangedPaths = changedPaths.stream()
+                .map(path -> path.toAbsolutePath().normalize())
+                .collect(Collectors.toSet());
+
+        var dependees = new HashMap<BuildId, List<BuildId>>();
+        var pending = new ArrayDeque<BuildId>();
+        for (BuildInfo buildInfo : builds.values()) {
+            buildInfo.buildDependencies().forEach(dependency ->
+                    dependees.computeIfAbsent(dependency, key -> new ArrayList<>()).add(buildInfo.id()));
+            if (!succeededBuilds.contains(buildInfo.id()) || watchesAnyOf(buildInfo, absoluteChangedPaths)) {
+                pending.add(buildInfo.id());
+            }
+        }
+
+        var affected = new HashMap<BuildId, BuildInfo>();
+        while (!pending.isEmpty()) {
+            BuildInfo buildInfo = builds.get(pending.poll());
+            if (affected.putIfAbsent(buildInfo.id(), buildInfo) == null) {
+                pending.addAll(dependees.getOrDefault(buildInfo.id(), List.of()));
+            }
+        }
+
+        return affected;
+    }
+
+    private static boolean watchesAnyOf(BuildInfo buildInfo, Set<Path> absolutePaths) {
+        return buildInfo.build().watchedDirectories(buildInfo.moduleContext()).stream()
+                .map(directory -> directory.toAbsolutePath().normalize())
+                .anyMatch(directory -> absolutePaths.stream().anyMatch(path -> path.startsWith(directory)));
+    }
+
+    private Set<ArtifactId> artifactsOf(TargetPattern.Target target) {
+        Set<ArtifactId> declaredArtifacts = targets.get(target.toString());
+        if (declaredArtifacts != null) {
+            return declaredArtifacts;
+        }
+
+        Set<ArtifactId> namedArtifacts = artifacts.keySet().stream()
+                .filter(artifactId -> artifactId.namespace().equals(target.module()) && artifactId.artifactName().equals(target.name()))
+                .collect(Collectors.toSet());
+        if (namedArtifacts.isEmpty()) {
+            String moduleTargets = targets.keySet().stream()
+                    .filter(key -> key.startsWith(target.module() + ":"))
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            throw new UserError("no such target: " + target +
+                    (moduleTargets.isEmpty() ? "" : " (the targets of the module are " + moduleTargets + ")"));
+        }
+        return namedArtifacts;
     }
 
     public ArtifactImpl<?> verifyArtifact(Artifact<?> artifact) {
@@ -200,10 +361,7 @@ public class BuildSet {
         ArtifactImpl<?> artifactImpl = (ArtifactImpl<?>) artifact;
 
         ArtifactId artifactId = artifactImpl.artifactId();
-        ArtifactImpl<?> ourArtifactImpl;
-        synchronized (monitor) {
-            ourArtifactImpl = artifacts.get(artifactId);
-        }
+        ArtifactImpl<?> ourArtifactImpl = artifacts.get(artifactId);
         Objects.requireNonNull(ourArtifactImpl, "no such artifact: " + artifact.toString());
 
         if (ourArtifactImpl != artifact) {
@@ -215,6 +373,7 @@ public class BuildSet {
     }
 
     /** Verify this graph owns the artifact, and that it belongs to the given build. */
+    @Override
     public <T> ArtifactImpl<T> verifyArtifact(Artifact<T> artifact, BuildId buildId) {
         Objects.requireNonNull(artifact, "artifact cannot be null");
         Objects.requireNonNull(buildId, "buildId cannot be null");
@@ -225,12 +384,8 @@ public class BuildSet {
         ArtifactImpl<T> artifactImpl = (ArtifactImpl<T>) artifact;
 
         ArtifactId artifactId = artifactImpl.artifactId();
-        ArtifactImpl<?> ourArtifactImpl;
-        BuildInfo buildInfo;
-        synchronized (monitor) {
-            ourArtifactImpl = artifacts.get(artifactId);
-            buildInfo = builds.get(buildId);
-        }
+        ArtifactImpl<?> ourArtifactImpl = artifacts.get(artifactId);
+        BuildInfo buildInfo = builds.get(buildId);
         Objects.requireNonNull(ourArtifactImpl, "no such artifact: " + artifact.toString());
         Objects.requireNonNull(buildInfo, "no such build: " + buildId);
 
@@ -246,6 +401,24 @@ public class BuildSet {
         return artifactImpl;
     }
 
+    @Override
+    public ArtifactImpl<?> artifactOf(ArtifactId artifactId) {
+        return Objects.requireNonNull(artifacts.get(artifactId), "no such artifact: " + artifactId);
+    }
+
+    @Override
+    public BuildInfo buildOf(BuildId buildId) {
+        return Objects.requireNonNull(builds.get(buildId), "no such build: " + buildId);
+    }
+
+    /** The directories watched by the builds, see {@link Build#watchedDirectories(ModuleContext)}. */
+    public Set<Path> watchedDirectories() {
+        return builds.values().stream()
+                .flatMap(buildInfo -> buildInfo.build().watchedDirectories(buildInfo.moduleContext()).stream())
+                .map(Path::normalize)
+                .collect(Collectors.toSet());
+    }
+
     public void printGraphviz(Path dotPath) {
         var graphviz = new Graphviz(Map.copyOf(artifacts), Map.copyOf(builds));
         var string = graphviz.make();
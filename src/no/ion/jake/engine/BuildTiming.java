@@ -0,0 +1,18 @@
+package no.ion.jake.engine;
+
+/** When a build was queued for execution, started, and completed, as given by {@link System#nanoTime()}. */
+public class BuildTiming {
+    private final long queuedNanos;
+    private final long startNanos;
+    private final long endNanos;
+
+    public BuildTiming(long queuedNanos, long startNanos, long endNanos) {
+        this.queuedNanos = queuedNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+    }
+
+    public long queuedNanos() { return queuedNanos; }
+    public long startNanos() { return startNanos; }
+    public long endNanos() { return endNanos; }
+}
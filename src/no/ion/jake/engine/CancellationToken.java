@@ -0,0 +1,15 @@
+package no.ion.jake.engine;
+
+/** Signals the builds of a build graph that they should stop as soon as possible.  Thread-safe. */
+public class CancellationToken {
+    private final CancellationToken parent;
+    private volatile boolean cancelled = false;
+
+    public CancellationToken() { this(null); }
+
+    /** A token that is also cancelled when the parent is, e.g. by the client of the build. */
+    public CancellationToken(CancellationToken parent) { this.parent = parent; }
+
+    public void cancel() { cancelled = true; }
+    public boolean isCancelled() { return cancelled || (parent != null && parent.isCancelled()); }
+}
@@ -1,5 +1,6 @@
 package no.ion.jake.engine;
 
+import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Declarator;
 import no.ion.jake.build.Module;
 import no.ion.jake.build.ModuleContext;
@@ -27,4 +28,9 @@ public class DeclaratorImpl implements Declarator {
     public BuildDeclaration declareNewBuild(String namespace) {
         return new BuildDeclarationImpl(buildSet, moduleContext, namespace);
     }
+
+    @Override
+    public void declareTarget(String name, Artifact<?> artifact) {
+        buildSet.addTarget(module.moduleName(), name, artifact);
+    }
 }
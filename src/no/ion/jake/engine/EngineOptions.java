@@ -0,0 +1,85 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.graph.SchedulingPolicy;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/** Options affecting how the engine executes a build set. */
+public class EngineOptions {
+    private boolean keepGoing = false;
+    private boolean rebuild = false;
+    private boolean reportSchedule = false;
+    private boolean reportSchedulerStats = false;
+    private Path tracePath = null;
+    private boolean reportBuildMetrics = false;
+    private Path buildMetricsPath = null;
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.CRITICAL_PATH;
+    private CancellationToken cancellationToken = new CancellationToken();
+
+    public void setKeepGoing(boolean keepGoing) {
+        this.keepGoing = keepGoing;
+    }
+
+    public void setRebuild(boolean rebuild) {
+        this.rebuild = rebuild;
+    }
+
+    public void setReportSchedule(boolean reportSchedule) {
+        this.reportSchedule = reportSchedule;
+    }
+
+    public void setReportSchedulerStats(boolean reportSchedulerStats) {
+        this.reportSchedulerStats = reportSchedulerStats;
+    }
+
+    public void setTracePath(Path tracePath) {
+        this.tracePath = tracePath;
+    }
+
+    public void setReportBuildMetrics(boolean reportBuildMetrics) {
+        this.reportBuildMetrics = reportBuildMetrics;
+    }
+
+    public void setBuildMetricsPath(Path buildMetricsPath) {
+        this.buildMetricsPath = buildMetricsPath;
+    }
+
+    public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /** Whether to continue with the builds not depending on a failed build, instead of cancelling all builds. */
+    public boolean keepGoing() { return keepGoing; }
+
+    /** Whether to run all builds, including those that are up to date. */
+    public boolean rebuild() { return rebuild; }
+
+    /** Whether to log the predicted and actual critical path of the builds. */
+    public boolean reportSchedule() { return reportSchedule; }
+
+    /** Whether to log how long the scheduler was idle, and how quickly it reacted to completed builds and load changes. */
+    public boolean reportSchedulerStats() { return reportSchedulerStats; }
+
+    /** The file to write a Chrome trace of the builds to, if any. */
+    public Optional<Path> tracePath() { return Optional.ofNullable(tracePath); }
+
+    /** Whether to log a table of the resources used by each build. */
+    public boolean reportBuildMetrics() { return reportBuildMetrics; }
+
+    /** The file to write the resources used by each build to as JSON, if any. */
+    public Optional<Path> buildMetricsPath() { return Optional.ofNullable(buildMetricsPath); }
+
+    /** The order in which ready builds are started. */
+    public SchedulingPolicy schedulingPolicy() { return schedulingPolicy; }
+
+    /** Cancels the builds when cancelled, e.g. when the client of the daemon has disconnected. */
+    public CancellationToken cancellationToken() { return cancellationToken; }
+
+    /** Whether to measure the resources used by each build, see {@link BuildMetrics}. */
+    public boolean collectBuildMetrics() { return reportBuildMetrics || buildMetricsPath != null; }
+}
@@ -2,6 +2,7 @@ package no.ion.jake.engine;
 
 import no.ion.jake.build.Build;
 
+import java.lang.reflect.Method;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
@@ -10,35 +11,86 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class JakeExecutor {
     private final float targetLoad;
+    private final int cpuThreads;
 
     private final Object monitor = new Object();
     private final List<Thread> threads = new ArrayList<>();
     private final ArrayDeque<Build> buildQueue = new ArrayDeque<>();
     private final IdentityHashMap<Build, String> buildSet = new IdentityHashMap<>();
     private final ExecutorService threadPool;
+    private final ExecutorService ioThreadPool;
     private final IdentityHashMap<Thread, String> activeThreads = new IdentityHashMap<>();
+    private final AtomicInteger workerThreadCount = new AtomicInteger(0);
 
     private volatile float loadFactor = 1.0f;
     private final ScheduledExecutorService loadFactorExecutorService;
 
     public JakeExecutor(float load) {
         this.targetLoad = load;
-        this.loadFactorExecutorService = Executors.newScheduledThreadPool(1);
-        this.threadPool = Executors.newWorkStealingPool(Math.max(1, Math.round(load)));
+        this.loadFactorExecutorService = Executors.newScheduledThreadPool(1, runnable -> {
+            var thread = new Thread(runnable, "jake-load-factor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // BuildGraph admits CPU-bound builds by load, and never more than there are threads.
+        float resolvedTargetLoad = load > 0 ? load : -load * Runtime.getRuntime().availableProcessors();
+        this.cpuThreads = Math.max(1, Math.round(resolvedTargetLoad));
+        this.threadPool = Executors.newFixedThreadPool(cpuThreads, this::newWorkerThread);
+        this.ioThreadPool = newIoThreadPool();
         loadFactorExecutorService.scheduleAtFixedRate(this::updateLoadFactor, 0, 100, TimeUnit.MILLISECONDS);
     }
 
     public float targetLoad() { return targetLoad; }
 
-    public void cancelAndWait() {}
+    /** The number of threads running CPU-bound builds:  The target load, rounded, and at least 1. */
+    public int cpuThreads() { return cpuThreads; }
+
+    /**
+     * Each worker thread has its own thread group, to allow attributing threads spawned by a build to the build.  The
+     * worker threads live as long as the executor, so there are at most {@link #cpuThreads()} groups.
+     */
+    static class WorkerThreadGroup extends ThreadGroup {
+        private WorkerThreadGroup(String name) { super(name); }
+    }
+
+    /**
+     * Returns an executor with a virtual thread per task if supported by the JVM, or a cached thread pool.  Virtual
+     * threads require Java 21, while jake only requires Java 16 (for Unix domain sockets), hence the reflection.
+     */
+    private static ExecutorService newIoThreadPool() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger ioThreadCount = new AtomicInteger(0);
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "jake-io-" + ioThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private Thread newWorkerThread(Runnable runnable) {
+        String name = "jake-worker-" + workerThreadCount.incrementAndGet();
+        var thread = new Thread(new WorkerThreadGroup(name), runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
 
     public void runAsync(Runnable runnable) {
         threadPool.submit(runnable);
     }
 
+    /** Runs an I/O-bound build, which should not occupy the threads of the CPU-bound builds. */
+    public void runIoAsync(Runnable runnable) {
+        ioThreadPool.submit(runnable);
+    }
+
     private boolean canRunOneMore() {
         int running;
         synchronized (monitor) {
@@ -0,0 +1,77 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.build.Module;
+import no.ion.jake.build.ModuleContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Declares the builds of modules concurrently.  A module is created and its builds declared once the modules it
+ * depends on have declared theirs, so it may refer to their artifacts.
+ */
+public class ModuleDeclarations {
+    private final BuildSet buildSet;
+    private final Executor executor;
+    private final List<CompletableFuture<?>> declarations = new ArrayList<>();
+
+    /**
+     * Declares on the common fork-join pool, or in the calling thread if the pool has only one thread (2 CPUs or
+     * less), since handing each module over to a single worker thread costs more than declaring it.
+     */
+    public ModuleDeclarations(BuildSet buildSet) {
+        this(buildSet, ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : Runnable::run);
+    }
+
+    public ModuleDeclarations(BuildSet buildSet, Executor executor) {
+        this.buildSet = buildSet;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the module with the factory and declares its builds, after the dependencies have completed.
+     *
+     * @return the module, once its builds have been declared
+     */
+    public <M extends Module> CompletableFuture<M> declare(ModuleContext moduleContext,
+                                                           List<CompletableFuture<? extends Module>> dependencies,
+                                                           Function<ModuleContext, M> moduleFactory) {
+        CompletableFuture<M> declaration = CompletableFuture
+                .allOf(dependencies.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(ignored -> {
+                    M module = moduleFactory.apply(moduleContext);
+                    module.declareBuilds(new DeclaratorImpl(buildSet, moduleContext, module));
+                    return module;
+                }, executor);
+
+        synchronized (declarations) {
+            declarations.add(declaration);
+        }
+
+        return declaration;
+    }
+
+    /** Waits for all modules to be declared, and rethrows the exception of a failed declaration. */
+    public void awaitAll() {
+        List<CompletableFuture<?>> declarations;
+        synchronized (this.declarations) {
+            declarations = List.copyOf(this.declarations);
+        }
+
+        try {
+            CompletableFuture.allOf(declarations.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.LogSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+
+/**
+ * Compares the critical path predicted from the expected build durations, with the actual critical path:  The
+ * chain of builds ending with the last build to complete, where each build is preceded by the last of its
+ * dependencies to complete.
+ */
+class ScheduleReport {
+    private final List<BuildId> predictedCriticalPath;
+    private final Map<BuildId, Duration> expectedDurations;
+    private final Map<BuildId, BuildInfo> builds;
+    private final Map<BuildId, BuildTiming> timings;
+
+    ScheduleReport(List<BuildId> predictedCriticalPath, Map<BuildId, Duration> expectedDurations,
+                   Map<BuildId, BuildInfo> builds, Map<BuildId, BuildTiming> timings) {
+        this.predictedCriticalPath = predictedCriticalPath;
+        this.expectedDurations = expectedDurations;
+        this.builds = builds;
+        this.timings = timings;
+    }
+
+    void log(LogSink logSink) {
+        if (timings.isEmpty()) {
+            return;
+        }
+
+        long originNanos = timings.values().stream().mapToLong(BuildTiming::queuedNanos).min().orElseThrow();
+        long endNanos = timings.values().stream().mapToLong(BuildTiming::endNanos).max().orElseThrow();
+
+        Duration predicted = predictedCriticalPath.stream()
+                .map(this::expectedDuration)
+                .reduce(Duration.ZERO, Duration::plus);
+        logSink.log(Level.INFO, String.format(Locale.ROOT, "predicted critical path of %d builds: %.3f s",
+                predictedCriticalPath.size(), seconds(predicted.toNanos())), null);
+        for (BuildId buildId : predictedCriticalPath) {
+            BuildTiming timing = timings.get(buildId);
+            String actual = timing == null ?
+                    "" :
+                    String.format(Locale.ROOT, " (actual %.3f s)", seconds(timing.endNanos() - timing.startNanos()));
+            logSink.log(Level.INFO, String.format(Locale.ROOT, "  %8.3f s %s%s",
+                    seconds(expectedDuration(buildId).toNanos()), toString(buildId), actual), null);
+        }
+
+        List<BuildId> actualCriticalPath = actualCriticalPath(builds, timings);
+        long busyNanos = actualCriticalPath.stream()
+                .map(timings::get)
+                .mapToLong(timing -> timing.endNanos() - timing.startNanos())
+                .sum();
+        logSink.log(Level.INFO, String.format(Locale.ROOT,
+                "actual critical path of %d builds: %.3f s, of which %.3f s were spent outside the builds",
+                actualCriticalPath.size(), seconds(endNanos - originNanos), seconds(endNanos - originNanos - busyNanos)),
+                null);
+        for (BuildId buildId : actualCriticalPath) {
+            BuildTiming timing = timings.get(buildId);
+            logSink.log(Level.INFO, String.format(Locale.ROOT, "  start %8.3f s, took %8.3f s (expected %.3f s) %s",
+                    seconds(timing.startNanos() - originNanos),
+                    seconds(timing.endNanos() - timing.startNanos()),
+                    seconds(expectedDuration(buildId).toNanos()),
+                    toString(buildId)), null);
+        }
+    }
+
+    /**
+     * Returns the actual critical path:  The chain of builds ending with the last build to complete, where each build
+     * is preceded by the last of its dependencies to complete.
+     */
+    static List<BuildId> actualCriticalPath(Map<BuildId, BuildInfo> builds, Map<BuildId, BuildTiming> timings) {
+        var path = new ArrayList<BuildId>();
+
+        Optional<BuildId> buildId = lastToComplete(timings.keySet(), timings);
+        while (buildId.isPresent()) {
+            path.add(buildId.get());
+            buildId = lastToComplete(builds.get(buildId.get()).buildDependencies(), timings);
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+
+    private static Optional<BuildId> lastToComplete(Iterable<BuildId> buildIds, Map<BuildId, BuildTiming> timings) {
+        BuildId last = null;
+        for (BuildId buildId : buildIds) {
+            BuildTiming timing = timings.get(buildId);
+            if (timing != null && (last == null || timing.endNanos() > timings.get(last).endNanos())) {
+                last = buildId;
+            }
+        }
+        return Optional.ofNullable(last);
+    }
+
+    private Duration expectedDuration(BuildId buildId) {
+        return expectedDurations.getOrDefault(buildId, BuildHistory.DEFAULT_DURATION);
+    }
+
+    private static String toString(BuildId buildId) { return buildId.namespace() + ":" + buildId.id(); }
+
+    private static double seconds(long nanos) { return nanos / 1e9; }
+}
@@ -0,0 +1,50 @@
+package no.ion.jake.engine;
+
+import java.util.Locale;
+
+/**
+ * Statistics on the waiting done by the scheduler of a {@link BuildGraph}.  Not thread-safe: Must only be
+ * accessed while holding the scheduler's monitor.
+ */
+class SchedulerStats {
+    private int waits = 0;
+    private long idleNanos = 0;
+    private long deferredNanos = 0;
+
+    private int wakeUps = 0;
+    private long sumWakeUpLatencyNanos = 0;
+    private long maxWakeUpLatencyNanos = 0;
+
+    private long lastEventNanos = 0;
+
+    /** Invoked when the scheduler is notified of an event it may act on, e.g. a completed build. */
+    void recordEvent() {
+        lastEventNanos = System.nanoTime();
+    }
+
+    /** Invoked after the scheduler has waited from startNanos to endNanos. */
+    void recordWait(long startNanos, long endNanos, boolean deferredByLoad) {
+        ++waits;
+        idleNanos += endNanos - startNanos;
+        if (deferredByLoad) {
+            deferredNanos += endNanos - startNanos;
+        }
+
+        if (lastEventNanos >= startNanos) {
+            long latencyNanos = endNanos - lastEventNanos;
+            ++wakeUps;
+            sumWakeUpLatencyNanos += latencyNanos;
+            maxWakeUpLatencyNanos = Math.max(maxWakeUpLatencyNanos, latencyNanos);
+        }
+    }
+
+    String summary() {
+        return String.format(Locale.ROOT,
+                "scheduler idle %.3f s in %d waits (%.3f s deferred by load), wake-up latency mean %.3f ms max %.3f ms",
+                idleNanos / 1e9,
+                waits,
+                deferredNanos / 1e9,
+                wakeUps == 0 ? 0.0 : sumWakeUpLatencyNanos / 1e6 / wakeUps,
+                maxWakeUpLatencyNanos / 1e6);
+    }
+}
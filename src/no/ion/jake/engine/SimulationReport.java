@@ -0,0 +1,57 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.LogSink;
+import no.ion.jake.graph.BuildOrderFactory;
+import no.ion.jake.graph.ScheduleSimulator;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/** Logs the simulated makespan, utilisation and idle gaps of each build order policy on each core count. */
+class SimulationReport {
+    private static final int MAX_GAPS = 3;
+
+    private final ScheduleSimulator<BuildId> simulator;
+    private final Map<String, BuildOrderFactory<BuildId>> policies;
+    private final List<Float> coreCounts;
+
+    /** The policies are simulated in the iteration order of the map. */
+    SimulationReport(ScheduleSimulator<BuildId> simulator, Map<String, BuildOrderFactory<BuildId>> policies,
+                     List<Float> coreCounts) {
+        this.simulator = simulator;
+        this.policies = policies;
+        this.coreCounts = coreCounts;
+    }
+
+    void log(LogSink logSink, int builds) {
+        logSink.log(Level.INFO, String.format(Locale.ROOT, "simulated %d builds with a critical path of %.3f s:",
+                builds, seconds(simulator.criticalPath())), null);
+        logSink.log(Level.INFO, String.format(Locale.ROOT, "  %-15s %6s %9s %11s %9s %9s %5s",
+                "policy", "cores", "makespan", "utilisation", "deferred", "idle", "gaps"), null);
+
+        policies.forEach((policy, buildOrderFactory) -> {
+            for (float cores : coreCounts) {
+                ScheduleSimulator.Result<BuildId> result = simulator.simulate(buildOrderFactory, cores);
+                logSink.log(Level.INFO, String.format(Locale.ROOT, "  %-15s %6.1f %9.3f %10.1f%% %9.3f %9.3f %5d",
+                        policy, cores, seconds(result.makespan()), 100 * result.utilisation(),
+                        seconds(result.deferred()), seconds(result.idle()), result.idleGaps().size()), null);
+
+                result.idleGaps().stream()
+                        .sorted(Comparator.comparing(ScheduleSimulator.IdleGap<BuildId>::duration).reversed())
+                        .limit(MAX_GAPS)
+                        .forEach(gap -> logSink.log(Level.INFO, String.format(Locale.ROOT,
+                                "    idle at %.3f s for %.3f s waiting on %s", seconds(gap.start()),
+                                seconds(gap.duration()), gap.runningBuilds().stream()
+                                        .map(buildId -> buildId.namespace() + ":" + buildId.id())
+                                        .collect(Collectors.joining(", "))), null));
+            }
+        });
+    }
+
+    private static double seconds(Duration duration) { return duration.toNanos() / 1e9; }
+}
@@ -9,8 +9,9 @@ public class SingleBuildDriver {
         this.logSink = logSink;
     }
 
-    public BuildResult runSync(ArtifactRegistry artifactRegistry, BuildInfo info) {
-        BuildRunner runner = new BuildRunner(artifactRegistry, info, logSink);
+    public BuildResult runSync(ArtifactRegistry artifactRegistry, UpToDateChecker upToDateChecker, BuildInfo info,
+                               CancellationToken cancellationToken) {
+        BuildRunner runner = new BuildRunner(artifactRegistry, upToDateChecker, info, logSink, cancellationToken);
         return runner.runSync();
     }
 }
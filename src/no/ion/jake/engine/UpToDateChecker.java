@@ -0,0 +1,448 @@
+package no.ion.jake.engine;
+
+import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
+import no.ion.jake.build.ModuleContext;
+import no.ion.jake.engine.cache.ActionCache;
+import no.ion.jake.engine.cache.Output;
+import no.ion.jake.io.FileDigests;
+import no.ion.jake.io.FileInfo;
+import no.ion.jake.io.FileSet2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.function.Function.identity;
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * Decides whether a build is up to date, i.e. whether its fingerprint and the artifacts it produced are equal to
+ * those of its last successful run.
+ *
+ * <p>The record of the last successful run is stored in target/jake of the module directory, in a file named after the
+ * build.  Each line is TAB-separated: "input" followed by the fingerprint, or "artifact" followed by the namespace
+ * and name of the artifact, the type ("path" or "void"), the published detail, the digest of the artifact, and for a
+ * directory the digest of its content (see {@link #contentDigestOf(Path)}).  Only builds producing Path and Void
+ * artifacts are recorded.</p>
+ *
+ * <p>The artifacts of a recorded build are also stored in the {@link ActionCache}, from which they are restored
+ * when a build has no matching record, e.g. after switching branches or in another checkout.</p>
+ */
+public class UpToDateChecker {
+    private final ArtifactRegistry artifactRegistry;
+    private final FileDigests fileDigests;
+    private final ActionCache actionCache;
+    private final boolean enabled;
+
+    public UpToDateChecker(ArtifactRegistry artifactRegistry, FileDigests fileDigests, ActionCache actionCache,
+                           boolean enabled) {
+        this.artifactRegistry = artifactRegistry;
+        this.fileDigests = fileDigests;
+        this.actionCache = actionCache;
+        this.enabled = enabled;
+    }
+
+    public FileDigests fileDigests() { return fileDigests; }
+
+    /** Returns the fingerprint of the build, or empty if the build should always be run. */
+    public Optional<String> fingerprintOf(BuildInfo buildInfo) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        var fingerprint = new Fingerprint(fileDigests, buildInfo.moduleContext().projectPath());
+        if (!buildInfo.build().fingerprint(fingerprint, buildInfo.moduleContext())) {
+            return Optional.empty();
+        }
+
+        fingerprint.putString(Runtime.version().toString())
+                .putString(buildInfo.build().getClass().getName())
+                .putString(buildInfo.namespace())
+                .putString(buildInfo.build().name());
+
+        List<ArtifactImpl<?>> dependencies = new ArrayList<>();
+        buildInfo.dependencies().forEach(artifactId -> dependencies.add(artifactRegistry.artifactOf(artifactId)));
+        dependencies.sort(Comparator.comparing((ArtifactImpl<?> artifact) -> artifact.namespace()).thenComparing(ArtifactImpl::name));
+        for (ArtifactImpl<?> dependency : dependencies) {
+            fingerprint.putString(dependency.namespace())
+                    .putString(dependency.name())
+                    .putString(digestOf(dependency));
+        }
+
+        return Optional.of(fingerprint.hex());
+    }
+
+    /**
+     * If the build has a record with the given fingerprint and the artifacts are unchanged since they were recorded,
+     * or the action cache has an entry for the fingerprint, republish the artifacts and return true.  Otherwise,
+     * return false.  The record is kept in case the build reports an artifact as unchanged, see
+     * {@link #record(BuildInfo, String)}.
+     */
+    public boolean republishIfUpToDate(BuildInfo buildInfo, String fingerprint, BuildContextImpl context) {
+        return republishFromRecord(buildInfo, fingerprint, context) || restoreFromActionCache(buildInfo, fingerprint, context);
+    }
+
+    private boolean republishFromRecord(BuildInfo buildInfo, String fingerprint, BuildContextImpl context) {
+        Record record = Record.read(recordPathOf(buildInfo));
+        if (record == null || !record.fingerprint.equals(fingerprint) || record.details.size() != buildInfo.production().size()) {
+            return false;
+        }
+
+        for (ArtifactId artifactId : buildInfo.production()) {
+            String key = keyOf(artifactId);
+            if (!record.details.containsKey(key)) {
+                return false;
+            }
+
+            // A directory may be written to by later builds, e.g. the classes directory gets a manifest, so verify
+            // its content digest.  Its recorded digest is republished, so dependent builds still see it unchanged.
+            Path detail = record.details.get(key);
+            if (detail != null && Files.isDirectory(buildInfo.moduleContext().resolve(detail))) {
+                if (!hasContentDigest(buildInfo.moduleContext().resolve(detail), record.contents.get(key))) {
+                    return false;
+                }
+                continue;
+            }
+
+            ArtifactImpl<?> artifact = artifactRegistry.artifactOf(artifactId);
+            String digest = digestOf(artifact, detail, buildInfo.moduleContext(), fingerprint);
+            if (!digest.equals(record.digests.get(key))) {
+                return false;
+            }
+        }
+
+        for (ArtifactId artifactId : buildInfo.production()) {
+            ArtifactImpl<?> artifact = artifactRegistry.artifactOf(artifactId);
+            republish(context, artifact, record.details.get(keyOf(artifactId)));
+            artifact.setDigest(record.digests.get(keyOf(artifactId)));
+        }
+
+        context.log().debug(() -> buildInfo.build().name() + " is up to date");
+        return true;
+    }
+
+    private boolean restoreFromActionCache(BuildInfo buildInfo, String fingerprint, BuildContextImpl context) {
+        Optional<List<Output>> outputs = actionCache.lookup(fingerprint);
+        if (outputs.isEmpty()) {
+            return false;
+        }
+
+        Map<String, Output> outputsByKey = outputs.get().stream()
+                .collect(Collectors.toMap(output -> output.namespace() + "\t" + output.name(), identity()));
+        if (!outputsByKey.keySet().equals(buildInfo.production().stream().map(UpToDateChecker::keyOf).collect(Collectors.toSet()))) {
+            return false;
+        }
+
+        var details = new HashMap<String, Path>();
+        var digests = new HashMap<String, String>();
+        var contents = new HashMap<String, String>();
+        var restoredPaths = new ArrayList<Path>();
+        try {
+            for (ArtifactId artifactId : buildInfo.production()) {
+                String key = keyOf(artifactId);
+                Output output = outputsByKey.get(key);
+                Path detail = decodeDetail(output.detail(), buildInfo.moduleContext());
+                if (detail != null) {
+                    Path path = buildInfo.moduleContext().resolve(detail);
+                    restoredPaths.add(path);
+                    actionCache.restore(output, path);
+                    if (output.kind() == Output.Kind.DIRECTORY) {
+                        contents.put(key, contentDigestOf(path));
+                    }
+                }
+                details.put(key, detail);
+                digests.put(key, output.digest());
+            }
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            // E.g. a blob evicted by another jake process since the lookup.  The build is run instead, and must not
+            // see partly restored outputs.
+            actionCache.reportFailedRestore();
+            restoredPaths.forEach(UpToDateChecker::deleteQuietly);
+            context.log().warning("failed to restore " + buildInfo.build().name() + " from the action cache: " + e.getMessage());
+            return false;
+        }
+
+        for (ArtifactId artifactId : buildInfo.production()) {
+            ArtifactImpl<?> artifact = artifactRegistry.artifactOf(artifactId);
+            republish(context, artifact, details.get(keyOf(artifactId)));
+            artifact.setDigest(digests.get(keyOf(artifactId)));
+        }
+
+        new Record(fingerprint, details, digests, contents).write(recordPathOf(buildInfo));
+        context.log().debug(() -> buildInfo.build().name() + " was restored from the action cache");
+        return true;
+    }
+
+    /**
+     * Records the artifacts published by a successful run of the build.
+     *
+     * <p>An artifact the build reported as unchanged gets the digest it had in the previous record, if any.  The
+     * builds depending on it will then have the same fingerprint as before, and the change stops propagating.</p>
+     */
+    public void record(BuildInfo buildInfo, String fingerprint) {
+        Path recordPath = recordPathOf(buildInfo);
+        Record previous = Record.read(recordPath);
+        var details = new HashMap<String, Path>();
+        var digests = new HashMap<String, String>();
+        var contents = new HashMap<String, String>();
+        for (ArtifactId artifactId : buildInfo.production()) {
+            ArtifactImpl<?> artifact = artifactRegistry.artifactOf(artifactId);
+            Object detail = artifact.instanceClass() == Void.class ? null : artifact.detail();
+            if (detail != null && !(detail instanceof Path)) {
+                forget(buildInfo);
+                return;
+            }
+
+            String key = keyOf(artifactId);
+            final String digest;
+            if (!artifact.changed() && previous != null && previous.details.containsKey(key) &&
+                    Objects.equals(previous.details.get(key), detail)) {
+                digest = previous.digests.get(key);
+            } else {
+                digest = digestOf(artifact, detail, buildInfo.moduleContext(), fingerprint);
+            }
+            artifact.setDigest(digest);
+            details.put(key, (Path) detail);
+            digests.put(key, digest);
+            if (detail != null && Files.isDirectory(buildInfo.moduleContext().resolve((Path) detail))) {
+                contents.put(key, contentDigestOf(buildInfo.moduleContext().resolve((Path) detail)));
+            }
+        }
+
+        new Record(fingerprint, details, digests, contents).write(recordPath);
+
+        if (actionCache.enabled()) {
+            var outputs = new ArrayList<Output.Unstored>();
+            for (ArtifactId artifactId : buildInfo.production()) {
+                String key = keyOf(artifactId);
+                Path detail = details.get(key);
+                final Output.Kind kind;
+                Path path = detail == null ? null : buildInfo.moduleContext().resolve(detail);
+                if (path == null) {
+                    kind = Output.Kind.VOID;
+                } else if (Files.isDirectory(path)) {
+                    kind = Output.Kind.DIRECTORY;
+                } else if (Files.isRegularFile(path)) {
+                    kind = Output.Kind.FILE;
+                } else {
+                    return;
+                }
+                String encodedDetail = encodeDetail(detail, buildInfo.moduleContext());
+                if (encodedDetail == null) {
+                    return;
+                }
+                outputs.add(new Output.Unstored(artifactId.namespace(), artifactId.artifactName(), kind,
+                        encodedDetail, digests.get(key), path));
+            }
+            actionCache.store(fingerprint, outputs);
+        }
+    }
+
+    /** Removes the record of the build, e.g. after it failed and may have left its outputs inconsistent. */
+    public void forget(BuildInfo buildInfo) {
+        uncheckIO(() -> Files.deleteIfExists(recordPathOf(buildInfo)));
+    }
+
+    /**
+     * The digest of the content of an output directory.  Later builds may write into a directory of class files, e.g.
+     * the manifest into target/classes, so only its class files are digested, as by the compiler to decide whether
+     * its output changed.
+     */
+    private String contentDigestOf(Path directory) {
+        return hasClassFiles(directory) ?
+                "classes:" + fileDigests.digestOfClassFiles(directory) :
+                "tree:" + fileDigests.digestOf(directory);
+    }
+
+    private boolean hasContentDigest(Path directory, String contentDigest) {
+        if (contentDigest == null) {
+            return false;
+        } else if (contentDigest.startsWith("classes:")) {
+            return contentDigest.equals("classes:" + fileDigests.digestOfClassFiles(directory));
+        } else {
+            return contentDigest.equals("tree:" + fileDigests.digestOf(directory));
+        }
+    }
+
+    private static boolean hasClassFiles(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.anyMatch(FileDigests::isClassFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String digestOf(ArtifactImpl<?> artifact) {
+        // The digest of an artifact produced by a build with a fingerprint has already been set.
+        return artifact.digest(() -> {
+            ModuleContext moduleContext = artifactRegistry.buildOf(artifact.buildId()).moduleContext();
+            return digestOf(artifact, artifact.instanceClass() == Void.class ? null : artifact.detail(), moduleContext, null);
+        });
+    }
+
+    /**
+     * A Void artifact has the fingerprint of its producer as digest, and an artifact of a producer without fingerprint
+     * or of an unknown type is assumed to change on every run.
+     */
+    private String digestOf(ArtifactImpl<?> artifact, Object detail, ModuleContext moduleContext, String producerFingerprint) {
+        if (artifact.instanceClass() == Void.class) {
+            return producerFingerprint == null ? UUID.randomUUID().toString() : producerFingerprint;
+        } else if (detail instanceof Path) {
+            return new Fingerprint(fileDigests, moduleContext.projectPath()).putFile(moduleContext.resolve((Path) detail)).hex();
+        } else if (detail instanceof FileSet2) {
+            var fingerprint = new Fingerprint(fileDigests, moduleContext.projectPath());
+            ((FileSet2) detail).toFileInfoList().stream()
+                    .map(FileInfo::path)
+                    .sorted()
+                    .forEach(fingerprint::putFile);
+            return fingerprint.hex();
+        } else {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void republish(BuildContextImpl context, ArtifactImpl<T> artifact, Object detail) {
+        BuildContext.Publication<T> publication = context.newPublicationOf(artifact);
+        publication.hasChanged(false).publish((T) detail);
+    }
+
+    /** Deletes the file or directory tree, ignoring failures. */
+    private static void deleteQuietly(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException | UncheckedIOException e) {
+            // The build will overwrite what is left.
+        }
+    }
+
+    private static Path recordPathOf(BuildInfo buildInfo) {
+        String filename = URLEncoder.encode(buildInfo.build().name(), StandardCharsets.UTF_8);
+        return buildInfo.moduleContext().resolve("target/jake").resolve(filename);
+    }
+
+    /**
+     * Encodes the detail so that a path in the module directory is restored to the same path relative to the module
+     * directory of another checkout.  Returns null for a path outside the module directory, which is not cached.
+     */
+    private static String encodeDetail(Path detail, ModuleContext moduleContext) {
+        if (detail == null) {
+            return Output.VOID_DETAIL;
+        }
+
+        Path moduleDirectory = moduleContext.path().toAbsolutePath().normalize();
+        Path path = moduleContext.resolve(detail).toAbsolutePath().normalize();
+        if (path.startsWith(moduleDirectory) && !path.equals(moduleDirectory)) {
+            return Output.MODULE_DETAIL_PREFIX + moduleDirectory.relativize(path);
+        } else {
+            return null;
+        }
+    }
+
+    /** Decodes a detail, verified by {@link Output} to be void or within the module directory. */
+    private static Path decodeDetail(String encodedDetail, ModuleContext moduleContext) {
+        if (encodedDetail.equals(Output.VOID_DETAIL)) {
+            return null;
+        }
+
+        Path moduleDirectory = moduleContext.path().toAbsolutePath().normalize();
+        Path path = encodedDetail.startsWith(Output.MODULE_DETAIL_PREFIX) ?
+                moduleDirectory.resolve(encodedDetail.substring(Output.MODULE_DETAIL_PREFIX.length())).normalize() :
+                moduleDirectory;
+        if (!path.startsWith(moduleDirectory) || path.equals(moduleDirectory)) {
+            throw new IllegalArgumentException("bad detail in action cache: " + encodedDetail);
+        }
+        return path;
+    }
+
+    private static String keyOf(ArtifactId artifactId) {
+        return artifactId.namespace() + "\t" + artifactId.artifactName();
+    }
+
+    private static class Record {
+        private final String fingerprint;
+        /** The detail by artifact key, with null for Void. */
+        private final Map<String, Path> details;
+        private final Map<String, String> digests;
+        /** The content digest by artifact key, for directories. */
+        private final Map<String, String> contents;
+
+        private Record(String fingerprint, Map<String, Path> details, Map<String, String> digests, Map<String, String> contents) {
+            this.fingerprint = fingerprint;
+            this.details = details;
+            this.digests = digests;
+            this.contents = contents;
+        }
+
+        /** Returns null if there is no record, or the record is malformed. */
+        private static Record read(Path path) {
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+
+            List<String> lines = uncheckIO(() -> Files.readAllLines(path, StandardCharsets.UTF_8));
+            String fingerprint = null;
+            var details = new HashMap<String, Path>();
+            var digests = new HashMap<String, String>();
+            var contents = new HashMap<String, String>();
+            for (String line : lines) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 2 && fields[0].equals("input")) {
+                    fingerprint = fields[1];
+                } else if (fields.length == 7 && fields[0].equals("artifact")) {
+                    String key = fields[1] + "\t" + fields[2];
+                    switch (fields[3]) {
+                        case "path":
+                            details.put(key, Path.of(fields[4]));
+                            break;
+                        case "void":
+                            details.put(key, null);
+                            break;
+                        default:
+                            return null;
+                    }
+                    digests.put(key, fields[5]);
+                    if (!fields[6].isEmpty()) {
+                        contents.put(key, fields[6]);
+                    }
+                } else {
+                    return null;
+                }
+            }
+
+            return fingerprint == null ? null : new Record(fingerprint, details, digests, contents);
+        }
+
+        private void write(Path path) {
+            var builder = new StringBuilder();
+            builder.append("input\t").append(fingerprint).append('\n');
+            details.forEach((key, detail) -> builder
+                    .append("artifact\t").append(key)
+                    .append('\t').append(detail == null ? "void" : "path")
+                    .append('\t').append(detail == null ? "" : detail.toString())
+                    .append('\t').append(digests.get(key))
+                    .append('\t').append(contents.getOrDefault(key, ""))
+                    .append('\n'));
+
+            uncheckIO(() -> Files.createDirectories(path.getParent()));
+            Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+            uncheckIO(() -> Files.writeString(temporaryPath, builder.toString(), StandardCharsets.UTF_8));
+            uncheckIO(() -> Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+        }
+    }
+}
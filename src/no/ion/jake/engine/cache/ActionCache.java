@@ -0,0 +1,366 @@
+package no.ion.jake.engine.cache;
+
+import no.ion.jake.io.FileDigests;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * A cache of the outputs of builds, keyed by the fingerprint of the build, and shared by all projects of the user.
+ *
+ * <p>The files are stored as blobs named by the SHA-256 of their content in the "cas" subdirectory.  An entry in the
+ * "ac" subdirectory is named by the fingerprint, and lists the artifacts and the blobs of their files.  Restoring
+ * copies the blobs, since a build may later overwrite its outputs in place, which would corrupt a hard-linked blob.</p>
+ *
+ * <p>The last modified time of an entry is updated on each hit, and {@link #evict()} removes the least recently used
+ * entries, and their blobs, until the size of the blobs is within the limit.</p>
+ *
+ * <p>With a {@link RemoteCache}, a local miss is looked up remotely and downloaded into the local cache, and stored
+ * entries are uploaded in the background.</p>
+ */
+public class ActionCache {
+    private final Path directory;
+    private final long maxBytes;
+    private RemoteCache remoteCache = null;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong bytesRestored = new AtomicLong(0);
+    private final AtomicLong bytesStored = new AtomicLong(0);
+
+    public static ActionCache open(Path directory, long maxBytes) {
+        return new ActionCache(directory, maxBytes);
+    }
+
+    /** Returns a cache that never hits and stores nothing. */
+    public static ActionCache disabled() {
+        return new ActionCache(null, 0);
+    }
+
+    private ActionCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean enabled() { return directory != null; }
+
+    public void setRemoteCache(RemoteCache remoteCache) {
+        if (!enabled()) {
+            throw new IllegalStateException("a remote cache requires the local cache to be enabled");
+        }
+        this.remoteCache = remoteCache;
+    }
+
+    public Optional<RemoteCache> remoteCache() { return Optional.ofNullable(remoteCache); }
+
+    /** Returns the outputs stored for the fingerprint, if any. */
+    public Optional<List<Output>> lookup(String fingerprint) {
+        if (!enabled()) {
+            return Optional.empty();
+        }
+
+        Path entryPath = entryPathOf(fingerprint);
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(entryPath, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            lines = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Output> outputs = lines == null ? null : Output.parse(lines);
+        if (outputs == null || !outputs.stream().allMatch(this::hasBlobs)) {
+            outputs = downloadFromRemote(fingerprint);
+            if (outputs == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(outputs);
+    }
+
+    /** Copies the files of the output to the path, which is the detail of the artifact resolved by the caller. */
+    public void restore(Output output, Path path) {
+        switch (output.kind()) {
+            case VOID:
+                return;
+            case FILE:
+                copyBlob(output.files().get(""), path);
+                return;
+            case DIRECTORY:
+                uncheckIO(() -> Files.createDirectories(path));
+                // The directory must match the entry exactly, since its digest is republished:  Remove e.g. the
+                // classes of another branch.
+                for (Path file : allRegularFilesIn(path)) {
+                    if (!output.files().containsKey(path.relativize(file).toString())) {
+                        uncheckIO(() -> Files.delete(file));
+                    }
+                }
+                output.files().forEach((relativePath, blob) -> copyBlob(blob, resolveInner(path, relativePath)));
+                return;
+        }
+        throw new IllegalArgumentException("unknown output kind: " + output.kind());
+    }
+
+    /** Stores the outputs, where each path is the detail of the corresponding output resolved by the caller. */
+    public void store(String fingerprint, List<Output.Unstored> outputs) {
+        if (!enabled()) {
+            return;
+        }
+
+        var storedOutputs = new ArrayList<Output>();
+        for (Output.Unstored output : outputs) {
+            var files = new HashMap<String, String>();
+            switch (output.kind()) {
+                case VOID:
+                    break;
+                case FILE:
+                    files.put("", storeBlob(output.path()));
+                    break;
+                case DIRECTORY:
+                    for (Path file : regularFilesIn(output.path())) {
+                        files.put(output.path().relativize(file).toString(), storeBlob(file));
+                    }
+                    break;
+            }
+            storedOutputs.add(new Output(output.namespace(), output.name(), output.kind(), output.detail(),
+                    output.digest(), files));
+        }
+
+        String entry = Output.format(storedOutputs);
+        writeAtomically(entryPathOf(fingerprint), entry);
+
+        if (remoteCache != null) {
+            List<String> blobs = storedOutputs.stream()
+                    .flatMap(output -> output.files().values().stream())
+                    .distinct()
+                    .collect(Collectors.toList());
+            remoteCache.putAsync(fingerprint, entry, blobs, this::blobPathOf);
+        }
+    }
+
+    /** Removes the least recently used entries until the blobs take at most the maximum size. */
+    public void evict() {
+        if (!enabled() || bytesStored.get() == 0) {
+            return;
+        }
+
+        Map<String, Long> blobSizes = new HashMap<>();
+        for (Path blob : regularFilesIn(directory.resolve("cas"))) {
+            blobSizes.put(blob.getFileName().toString(), uncheckIO(() -> Files.size(blob)));
+        }
+        long totalBytes = blobSizes.values().stream().mapToLong(Long::longValue).sum();
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        List<Path> entries = regularFilesIn(directory.resolve("ac"));
+        entries.sort(Comparator.comparing((Path entry) -> uncheckIO(() -> Files.getLastModifiedTime(entry))).reversed());
+
+        Set<String> keptBlobs = new HashSet<>();
+        long keptBytes = 0;
+        for (Path entry : entries) {
+            List<Output> outputs = Output.parse(uncheckIO(() -> Files.readAllLines(entry, StandardCharsets.UTF_8)));
+            Set<String> newBlobs = outputs == null ? Set.of() : outputs.stream()
+                    .flatMap(output -> output.files().values().stream())
+                    .filter(blob -> !keptBlobs.contains(blob))
+                    .collect(Collectors.toSet());
+            long newBytes = newBlobs.stream().mapToLong(blob -> blobSizes.getOrDefault(blob, 0L)).sum();
+            if (outputs == null || keptBytes + newBytes > maxBytes) {
+                uncheckIO(() -> Files.deleteIfExists(entry));
+            } else {
+                keptBlobs.addAll(newBlobs);
+                keptBytes += newBytes;
+            }
+        }
+
+        for (String blob : blobSizes.keySet()) {
+            if (!keptBlobs.contains(blob)) {
+                uncheckIO(() -> Files.deleteIfExists(blobPathOf(blob)));
+            }
+        }
+    }
+
+    public String statsSummary() {
+        return String.format(Locale.ROOT, "action cache: %d hits, %d misses, %.1f MB restored, %.1f MB stored",
+                hits.get(), misses.get(), bytesRestored.get() / 1e6, bytesStored.get() / 1e6);
+    }
+
+    /** Counts the last hit as a miss, since restoring its outputs failed. */
+    public void reportFailedRestore() {
+        hits.decrementAndGet();
+        misses.incrementAndGet();
+    }
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+
+    /** Returns the outputs of the remote entry after downloading it and its blobs, or null if not found. */
+    private List<Output> downloadFromRemote(String fingerprint) {
+        if (remoteCache == null) {
+            return null;
+        }
+
+        Optional<String> entry = remoteCache.getEntry(fingerprint);
+        List<Output> outputs = entry.map(content -> Output.parse(List.of(content.split("\n")))).orElse(null);
+        if (outputs == null) {
+            return null;
+        }
+
+        // Like a failing request, a failure to write the download to the local cache is a miss.
+        for (Output output : outputs) {
+            for (String blob : output.files().values()) {
+                Path blobPath = blobPathOf(blob);
+                if (Files.isRegularFile(blobPath)) {
+                    continue;
+                }
+
+                Path temporaryPath = blobPath.resolveSibling(blob + "." + UUID.randomUUID() + ".tmp");
+                try {
+                    Files.createDirectories(blobPath.getParent());
+                    if (!remoteCache.getBlob(blob, temporaryPath)) {
+                        return null;
+                    }
+                    Files.move(temporaryPath, blobPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    deleteIfExistsQuietly(temporaryPath);
+                    return null;
+                }
+            }
+        }
+
+        try {
+            writeAtomically(entryPathOf(fingerprint), entry.get());
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+        return outputs;
+    }
+
+    private boolean hasBlobs(Output output) {
+        return output.files().values().stream().allMatch(blob -> Files.isRegularFile(blobPathOf(blob)));
+    }
+
+    /**
+     * Stores the file as a blob and returns its name.  The blob is named by the digest of the bytes copied, rather than
+     * the digest cached by last modified time, which may be stale if the file was rewritten within its granularity.
+     */
+    private String storeBlob(Path file) {
+        Path casDirectory = directory.resolve("cas");
+        Path temporaryPath = casDirectory.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(casDirectory);
+            MessageDigest messageDigest = FileDigests.newMessageDigest();
+            try (var inputStream = new DigestInputStream(Files.newInputStream(file), messageDigest)) {
+                Files.copy(inputStream, temporaryPath);
+            }
+
+            String blob = FileDigests.toHex(messageDigest.digest());
+            Path blobPath = blobPathOf(blob);
+            if (Files.exists(blobPath)) {
+                Files.delete(temporaryPath);
+            } else {
+                Files.createDirectories(blobPath.getParent());
+                // A blob stored concurrently by another build has the same content.
+                Files.move(temporaryPath, blobPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                bytesStored.addAndGet(Files.size(blobPath));
+            }
+            return blob;
+        } catch (IOException e) {
+            deleteIfExistsQuietly(temporaryPath);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void copyBlob(String blob, Path path) {
+        uncheckIO(() -> Files.createDirectories(path.getParent()));
+        uncheckIO(() -> Files.copy(blobPathOf(blob), path, StandardCopyOption.REPLACE_EXISTING));
+        bytesRestored.addAndGet(uncheckIO(() -> Files.size(path)));
+    }
+
+    /** Resolves the relative path against the directory, failing unless the result is within the directory. */
+    private static Path resolveInner(Path directory, String relativePath) {
+        Path path = directory.resolve(relativePath).normalize();
+        if (!Output.isInnerPath(relativePath) || !path.startsWith(directory.normalize())) {
+            throw new IllegalArgumentException("path in action cache is outside " + directory + ": " + relativePath);
+        }
+        return path;
+    }
+
+    private Path entryPathOf(String fingerprint) {
+        return directory.resolve("ac").resolve(fingerprint.substring(0, 2)).resolve(fingerprint);
+    }
+
+    private Path blobPathOf(String blob) {
+        return directory.resolve("cas").resolve(blob.substring(0, 2)).resolve(blob);
+    }
+
+    /** The regular files in the directory tree, except temporary files of the cache. */
+    private static List<Path> regularFilesIn(Path directory) {
+        List<Path> files = allRegularFilesIn(directory);
+        files.removeIf(path -> path.getFileName().toString().endsWith(".tmp"));
+        return files;
+    }
+
+    private static List<Path> allRegularFilesIn(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Writes the content to path via a temporary file, which is removed on failure. */
+    private static void writeAtomically(Path path, String content) {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(temporaryPath, content, StandardCharsets.UTF_8);
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteIfExistsQuietly(temporaryPath);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteIfExistsQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
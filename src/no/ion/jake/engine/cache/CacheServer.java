@@ -0,0 +1,146 @@
+package no.ion.jake.engine.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import no.ion.jake.io.FileDigests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal HTTP server for a {@link RemoteCache}, storing the entries and blobs in a directory with the same layout
+ * as the {@link ActionCache}.  It has no authentication nor eviction, and is intended for testing and small teams.
+ *
+ * <p>The content of a blob is verified against its name when uploaded, and an existing entry is never overwritten.</p>
+ */
+public class CacheServer implements AutoCloseable {
+    private static final Pattern PATH_PATTERN = Pattern.compile("^/(ac|cas)/([0-9a-f]{64})$");
+
+    private final Path directory;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    public static CacheServer start(int port, Path directory) throws IOException {
+        return new CacheServer(port, directory);
+    }
+
+    private CacheServer(int port, Path directory) throws IOException {
+        this.directory = directory;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int port() { return server.getAddress().getPort(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Matcher matcher = PATH_PATTERN.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String kind = matcher.group(1);
+            String name = matcher.group(2);
+            Path path = directory.resolve(kind).resolve(name.substring(0, 2)).resolve(name);
+
+            switch (exchange.getRequestMethod()) {
+                case "HEAD":
+                    exchange.sendResponseHeaders(Files.isRegularFile(path) ? 200 : 404, -1);
+                    return;
+                case "GET":
+                    if (!Files.isRegularFile(path)) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.sendResponseHeaders(200, Files.size(path));
+                    try (OutputStream outputStream = exchange.getResponseBody()) {
+                        Files.copy(path, outputStream);
+                    }
+                    return;
+                case "PUT":
+                    exchange.sendResponseHeaders(put(kind.equals("cas") ? name : null, exchange.getRequestBody(), path), -1);
+                    return;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    /** Writes the body to path, verifying its SHA-256 unless expectedDigest is null, and returns the HTTP status. */
+    private static int put(String expectedDigest, InputStream body, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temporaryPath = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        MessageDigest messageDigest = FileDigests.newMessageDigest();
+        try (var inputStream = new DigestInputStream(body, messageDigest)) {
+            Files.copy(inputStream, temporaryPath);
+        }
+
+        if (expectedDigest != null && !FileDigests.toHex(messageDigest.digest()).equals(expectedDigest)) {
+            Files.delete(temporaryPath);
+            return 400;
+        }
+
+        if (expectedDigest == null) {
+            // An entry is never overwritten, so an upload cannot replace the entry others have restored from.  A rename
+            // would replace an existing entry, while linking fails.
+            try {
+                Files.createLink(path, temporaryPath);
+            } catch (FileAlreadyExistsException e) {
+                return 409;
+            } finally {
+                Files.delete(temporaryPath);
+            }
+        } else {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return 204;
+    }
+
+    public static void main(String... args) throws IOException {
+        int port = 8080;
+        Path directory = null;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--directory":
+                    directory = Path.of(args[++i]);
+                    break;
+                default:
+                    System.err.println("usage: CacheServer [--port PORT] --directory DIR");
+                    System.exit(1);
+            }
+        }
+
+        if (directory == null) {
+            System.err.println("missing --directory");
+            System.exit(1);
+        }
+
+        CacheServer server = start(port, directory);
+        System.out.println("Serving " + directory + " on port " + server.port());
+    }
+}
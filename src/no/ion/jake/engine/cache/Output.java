@@ -0,0 +1,158 @@
+package no.ion.jake.engine.cache;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/** An artifact of a build stored in the {@link ActionCache}. */
+public class Output {
+    public enum Kind { VOID, FILE, DIRECTORY }
+
+    /** The detail of a Void artifact. */
+    public static final String VOID_DETAIL = "void";
+    /** The prefix of the detail of a path, which is followed by the path relative to the module directory. */
+    public static final String MODULE_DETAIL_PREFIX = "module:";
+
+    private static final Pattern BLOB_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final String namespace;
+    private final String name;
+    private final Kind kind;
+    private final String detail;
+    private final String digest;
+    private final Map<String, String> files;
+
+    /**
+     * @param detail {@link #VOID_DETAIL}, or {@link #MODULE_DETAIL_PREFIX} followed by the relative path of the published
+     *               detail in the module directory
+     * @param digest the digest of the artifact as seen by the builds depending on it
+     * @param files  the blob of each file by its path relative to the directory, or by "" for a file
+     */
+    Output(String namespace, String name, Kind kind, String detail, String digest, Map<String, String> files) {
+        this.namespace = namespace;
+        this.name = name;
+        this.kind = kind;
+        this.detail = detail;
+        this.digest = digest;
+        this.files = new TreeMap<>(files);
+    }
+
+    public String namespace() { return namespace; }
+    public String name() { return name; }
+    public Kind kind() { return kind; }
+    public String detail() { return detail; }
+    public String digest() { return digest; }
+    Map<String, String> files() { return files; }
+
+    /** An artifact about to be stored, whose files are at path. */
+    public static class Unstored {
+        private final String namespace;
+        private final String name;
+        private final Kind kind;
+        private final String detail;
+        private final String digest;
+        private final Path path;
+
+        public Unstored(String namespace, String name, Kind kind, String detail, String digest, Path path) {
+            this.namespace = namespace;
+            this.name = name;
+            this.kind = kind;
+            this.detail = detail;
+            this.digest = digest;
+            this.path = path;
+        }
+
+        String namespace() { return namespace; }
+        String name() { return name; }
+        Kind kind() { return kind; }
+        String detail() { return detail; }
+        String digest() { return digest; }
+        Path path() { return path; }
+    }
+
+    /** Each output is a TAB-separated "artifact" line, followed by a "file" line for each of its files. */
+    static String format(List<Output> outputs) {
+        var builder = new StringBuilder();
+        for (Output output : outputs) {
+            builder.append("artifact\t").append(output.namespace).append('\t').append(output.name)
+                    .append('\t').append(output.kind.name()).append('\t').append(output.detail)
+                    .append('\t').append(output.digest).append('\n');
+            output.files.forEach((relativePath, blob) ->
+                    builder.append("file\t").append(relativePath).append('\t').append(blob).append('\n'));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns null if malformed.  An entry may have been downloaded from a remote cache, so a blob must be a SHA-256,
+     * and the paths of the detail and files must be relative paths that cannot escape the directory they are resolved
+     * against.
+     */
+    static List<Output> parse(List<String> lines) {
+        var outputs = new ArrayList<Output>();
+        String[] artifact = null;
+        Map<String, String> files = null;
+        for (String line : lines) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length == 6 && fields[0].equals("artifact")) {
+                if (artifact != null) {
+                    outputs.add(newOutput(artifact, files));
+                }
+                artifact = fields;
+                files = new TreeMap<>();
+            } else if (fields.length == 3 && fields[0].equals("file") && artifact != null &&
+                    BLOB_PATTERN.matcher(fields[2]).matches()) {
+                files.put(fields[1], fields[2]);
+            } else {
+                return null;
+            }
+        }
+
+        if (artifact != null) {
+            outputs.add(newOutput(artifact, files));
+        }
+
+        return outputs.contains(null) ? null : outputs;
+    }
+
+    private static Output newOutput(String[] fields, Map<String, String> files) {
+        String detail = fields[4];
+        for (Kind kind : Kind.values()) {
+            if (kind.name().equals(fields[3]) && hasValidFiles(kind, files) && (kind == Kind.VOID ?
+                    detail.equals(VOID_DETAIL) :
+                    detail.startsWith(MODULE_DETAIL_PREFIX) && isInnerPath(detail.substring(MODULE_DETAIL_PREFIX.length())))) {
+                return new Output(fields[1], fields[2], kind, detail, fields[5], files);
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasValidFiles(Kind kind, Map<String, String> files) {
+        switch (kind) {
+            case VOID:
+                return files.isEmpty();
+            case FILE:
+                return files.keySet().equals(Set.of(""));
+            case DIRECTORY:
+                return files.keySet().stream().allMatch(Output::isInnerPath);
+        }
+        return false;
+    }
+
+    /** Whether the path is a non-empty relative path that stays within the directory it is resolved against. */
+    static boolean isInnerPath(String path) {
+        try {
+            Path relativePath = Path.of(path);
+            Path normalized = relativePath.normalize();
+            return !path.isEmpty() && !relativePath.isAbsolute() && normalized.equals(relativePath) &&
+                    !normalized.toString().isEmpty() && !normalized.startsWith("..");
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+}
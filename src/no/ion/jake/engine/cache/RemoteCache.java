@@ -0,0 +1,233 @@
+package no.ion.jake.engine.cache;
+
+import no.ion.jake.io.FileDigests;
+import no.ion.jake.util.HttpClients;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A cache of build outputs on an HTTP server, e.g. {@link CacheServer}, shared by several machines.
+ *
+ * <p>An entry of the action cache is at /ac/FINGERPRINT, and a blob is at /cas/SHA256, both read with GET and written
+ * with PUT.  Failing requests are treated as misses, and never fail the build.</p>
+ *
+ * <p>Uploads are run by a few background threads, so they never delay a build.  If too many uploads are queued, new
+ * ones are dropped.</p>
+ */
+public class RemoteCache {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int UPLOAD_THREADS = 4;
+    private static final int MAX_QUEUED_UPLOADS = 1000;
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final ThreadPoolExecutor uploadExecutor;
+    private final Object monitor = new Object();
+    private int pendingUploads = 0;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong errors = new AtomicLong(0);
+    private final AtomicLong bytesDownloaded = new AtomicLong(0);
+    private final AtomicLong bytesUploaded = new AtomicLong(0);
+    private final AtomicLong droppedUploads = new AtomicLong(0);
+
+    public RemoteCache(URI baseUri) {
+        this.baseUri = baseUri.getPath().endsWith("/") ? baseUri : URI.create(baseUri + "/");
+        this.client = HttpClients.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.uploadExecutor = new ThreadPoolExecutor(UPLOAD_THREADS, UPLOAD_THREADS, 10, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_UPLOADS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "jake-cache-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    droppedUploads.incrementAndGet();
+                    uploadDone();
+                });
+        uploadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Returns the content of the action cache entry, if found. */
+    Optional<String> getEntry(String fingerprint) {
+        try {
+            HttpResponse<String> response = client.send(newRequest("ac/" + fingerprint).GET().build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() == 200) {
+                hits.incrementAndGet();
+                return Optional.of(response.body());
+            } else if (response.statusCode() != 404) {
+                errors.incrementAndGet();
+            }
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Optional.empty();
+    }
+
+    /** Downloads the blob to path, verifying its content, and returns false if not found. */
+    boolean getBlob(String blob, Path path) {
+        try {
+            HttpResponse<InputStream> response = client.send(newRequest("cas/" + blob).GET().build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (var inputStream = response.body()) {
+                if (response.statusCode() == 200) {
+                    // Digest the blob while writing it, instead of reading it back.
+                    MessageDigest messageDigest = FileDigests.newMessageDigest();
+                    long size = Files.copy(new DigestInputStream(inputStream, messageDigest), path,
+                            StandardCopyOption.REPLACE_EXISTING);
+                    if (FileDigests.toHex(messageDigest.digest()).equals(blob)) {
+                        bytesDownloaded.addAndGet(size);
+                        return true;
+                    }
+                }
+            }
+            if (response.statusCode() != 404) {
+                errors.incrementAndGet();
+            }
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // ignore
+        }
+        return false;
+    }
+
+    /**
+     * Uploads the blobs and then the entry in the background.  The blobs are read from the local cache when the
+     * upload runs, and are skipped if the server already has them.
+     */
+    void putAsync(String fingerprint, String entry, List<String> blobs, Function<String, Path> blobPathOf) {
+        synchronized (monitor) {
+            ++pendingUploads;
+        }
+
+        uploadExecutor.execute(() -> {
+            try {
+                for (String blob : blobs) {
+                    if (!exists("cas/" + blob) && !put("cas/" + blob, HttpRequest.BodyPublishers::ofFile, blobPathOf.apply(blob))) {
+                        return;
+                    }
+                }
+                // The server rejects overwriting an entry, e.g. one uploaded concurrently by another build.
+                if (!exists("ac/" + fingerprint)) {
+                    put("ac/" + fingerprint, path -> HttpRequest.BodyPublishers.ofString(entry, StandardCharsets.UTF_8), null);
+                }
+            } finally {
+                uploadDone();
+            }
+        });
+    }
+
+    /** Waits for the queued uploads to complete, or until the timeout. */
+    public void awaitUploads(Duration timeout) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        synchronized (monitor) {
+            while (pendingUploads > 0) {
+                long remainingMillis = deadline - System.currentTimeMillis();
+                if (remainingMillis <= 0) {
+                    return;
+                }
+
+                try {
+                    monitor.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public String statsSummary() {
+        return String.format(Locale.ROOT, "remote cache: %d hits, %d errors, %.1f MB downloaded, %.1f MB uploaded%s",
+                hits.get(), errors.get(), bytesDownloaded.get() / 1e6, bytesUploaded.get() / 1e6,
+                droppedUploads.get() == 0 ? "" : ", " + droppedUploads.get() + " uploads dropped");
+    }
+
+    private void uploadDone() {
+        synchronized (monitor) {
+            if (--pendingUploads == 0) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private boolean exists(String subpath) {
+        try {
+            HttpResponse<Void> response = client.send(
+                    newRequest(subpath).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private interface BodyPublisherFactory {
+        HttpRequest.BodyPublisher publisherOf(Path path) throws IOException;
+    }
+
+    private boolean put(String subpath, BodyPublisherFactory bodyPublisherFactory, Path path) {
+        try {
+            HttpRequest.BodyPublisher bodyPublisher = bodyPublisherFactory.publisherOf(path);
+            HttpRequest request = newRequest(subpath).PUT(bodyPublisher).build();
+            HttpResponse<Void> response;
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                // The server may have closed the pooled connection, e.g. after a HEAD.  The HTTP client retries
+                // only GET and HEAD on a new connection, while a PUT to the cache is idempotent too.
+                response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            }
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                bytesUploaded.addAndGet(Math.max(0, bodyPublisher.contentLength()));
+                return true;
+            }
+            errors.incrementAndGet();
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private HttpRequest.Builder newRequest(String subpath) {
+        return HttpRequest.newBuilder().uri(baseUri.resolve(subpath)).timeout(REQUEST_TIMEOUT);
+    }
+}
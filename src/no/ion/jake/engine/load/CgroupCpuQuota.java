@@ -0,0 +1,113 @@
+package no.ion.jake.engine.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the CPU quota of the cgroup of this process, e.g. as set by the CPU limit of a container.
+ *
+ * <p>{@link Runtime#availableProcessors()} already honors the quota, but rounds it up to a whole number of
+ * processors.  A quota of 1.5 CPU makes it return 2, and the build would then try to keep 2 cores busy while
+ * being throttled to 1.5.</p>
+ */
+public class CgroupCpuQuota {
+    private static final Path PROC_SELF_CGROUP = Path.of("/proc/self/cgroup");
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+
+    private CgroupCpuQuota() {}
+
+    /** Returns the number of CPUs the cgroup (or any of its ancestors) is limited to, if limited. */
+    public static Optional<Float> cpus() {
+        List<String> lines = readLines(PROC_SELF_CGROUP);
+        if (lines == null) {
+            return Optional.empty();
+        }
+
+        for (String line : lines) {
+            // hierarchy-ID:controller-list:cgroup-path
+            String[] fields = line.split(":", 3);
+            if (fields.length != 3) continue;
+
+            if (fields[0].equals("0") && fields[1].isEmpty()) {
+                Optional<Float> cpus = cgroupV2Cpus(relative(fields[2]));
+                if (cpus.isPresent()) {
+                    return cpus;
+                }
+            } else if (List.of(fields[1].split(",")).contains("cpu")) {
+                for (String directory : List.of(fields[1], "cpu", "cpu,cpuacct")) {
+                    Path controllerRoot = CGROUP_ROOT.resolve(directory);
+                    if (Files.isDirectory(controllerRoot)) {
+                        return cgroupV1Cpus(controllerRoot, relative(fields[2]));
+                    }
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /** With cgroup v2, cpu.max contains the quota and period in microseconds, with "max" meaning no limit. */
+    private static Optional<Float> cgroupV2Cpus(String cgroupPath) {
+        Float minCpus = null;
+        for (Path directory = CGROUP_ROOT.resolve(cgroupPath); directory.startsWith(CGROUP_ROOT); directory = directory.getParent()) {
+            List<String> lines = readLines(directory.resolve("cpu.max"));
+            if (lines == null || lines.isEmpty()) continue;
+
+            String[] fields = lines.get(0).trim().split(" +");
+            if (fields.length != 2 || fields[0].equals("max")) continue;
+
+            Float cpus = cpus(fields[0], fields[1]);
+            if (cpus != null && (minCpus == null || cpus < minCpus)) {
+                minCpus = cpus;
+            }
+        }
+        return Optional.ofNullable(minCpus);
+    }
+
+    /** With cgroup v1, the quota and period are in separate files, with a quota of -1 meaning no limit. */
+    private static Optional<Float> cgroupV1Cpus(Path controllerRoot, String cgroupPath) {
+        // Inside a container, the cgroup path is typically not visible and the container's cgroup is mounted as the root.
+        Path directory = controllerRoot.resolve(cgroupPath);
+        if (!Files.isDirectory(directory)) {
+            directory = controllerRoot;
+        }
+
+        List<String> quota = readLines(directory.resolve("cpu.cfs_quota_us"));
+        List<String> period = readLines(directory.resolve("cpu.cfs_period_us"));
+        if (quota == null || quota.isEmpty() || period == null || period.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(cpus(quota.get(0).trim(), period.get(0).trim()));
+    }
+
+    private static Float cpus(String quotaMicros, String periodMicros) {
+        try {
+            long quota = Long.parseLong(quotaMicros);
+            long period = Long.parseLong(periodMicros);
+            if (quota <= 0 || period <= 0) {
+                return null;
+            }
+            return quota / (float) period;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String relative(String cgroupPath) {
+        return cgroupPath.startsWith("/") ? cgroupPath.substring(1) : cgroupPath;
+    }
+
+    private static List<String> readLines(Path path) {
+        try {
+            return Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException | UncheckedIOException e) {
+            return null;
+        }
+    }
+}
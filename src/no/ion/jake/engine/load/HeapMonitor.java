@@ -0,0 +1,135 @@
+package no.ion.jake.engine.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Monitors the live heap, and the garbage collection pressure, from the notifications of the garbage collectors.
+ *
+ * <p>The live heap is the heap used after the latest garbage collection, which is the best available estimate of the
+ * memory that cannot be reclaimed:  After a young collection it also includes garbage in the old generation, so it
+ * errs on the high side.  The GC pressure is the fraction of the wall time of the last few seconds spent in garbage
+ * collection pauses.</p>
+ */
+public class HeapMonitor implements AutoCloseable {
+    private static final long PRESSURE_WINDOW_NANOS = 5_000_000_000L;
+
+    private final long maxHeapBytes;
+    private final Set<String> heapPoolNames;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handleNotification;
+    private final LongConsumer gcListener;
+    private final AtomicLong gcCount = new AtomicLong(0L);
+    private volatile long liveBytes;
+    /** The end time and duration in nanoseconds of the collections within the pressure window. */
+    private final Deque<long[]> recentCollections = new ArrayDeque<>();
+
+    /** Starts monitoring.  The GC listener is invoked with the live heap after each collection, on a JMX thread. */
+    public static HeapMonitor start(LongConsumer gcListener) {
+        return new HeapMonitor(gcListener);
+    }
+
+    private HeapMonitor(LongConsumer gcListener) {
+        this.gcListener = gcListener;
+        MemoryUsage heapUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        // The max is undefined (-1) if the JVM was started without a limit on the heap.
+        this.maxHeapBytes = heapUsage.getMax() > 0 ? heapUsage.getMax() : Runtime.getRuntime().maxMemory();
+        this.liveBytes = heapUsage.getUsed();
+        this.heapPoolNames = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(MemoryPoolMXBean::getName)
+                .collect(Collectors.toSet());
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                var emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    public long maxHeapBytes() { return maxHeapBytes; }
+
+    /** The heap used after the latest garbage collection, or at start if there has been none. */
+    public long liveBytes() { return liveBytes; }
+
+    /** The number of garbage collections since start. */
+    public long gcCount() { return gcCount.get(); }
+
+    /** The fraction of the wall time of the last few seconds spent in garbage collection pauses. */
+    public float gcPressure() {
+        long nowNanos = System.nanoTime();
+        long gcNanos = 0;
+        synchronized (recentCollections) {
+            expireCollections(nowNanos);
+            for (long[] collection : recentCollections) {
+                gcNanos += collection[1];
+            }
+        }
+        return Math.min(1f, gcNanos / (float) PRESSURE_WINDOW_NANOS);
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException ignored) {
+                // already removed
+            }
+        }
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+
+        var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long usedBytes = 0;
+        for (var entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPoolNames.contains(entry.getKey())) {
+                usedBytes += entry.getValue().getUsed();
+            }
+        }
+
+        // The cycles of concurrent collectors like ZGC, and the concurrent phases of G1 on newer JDKs, are reported
+        // separately from the pauses, and mostly run concurrently with the application.
+        if (!info.getGcAction().contains("cycle") && !info.getGcName().contains("Concurrent")) {
+            long nowNanos = System.nanoTime();
+            synchronized (recentCollections) {
+                recentCollections.addLast(new long[] { nowNanos, info.getGcInfo().getDuration() * 1_000_000L });
+                expireCollections(nowNanos);
+            }
+        }
+
+        liveBytes = usedBytes;
+        gcCount.incrementAndGet();
+        gcListener.accept(usedBytes);
+    }
+
+    private void expireCollections(long nowNanos) {
+        while (!recentCollections.isEmpty() && recentCollections.peekFirst()[0] < nowNanos - PRESSURE_WINDOW_NANOS) {
+            recentCollections.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package no.ion.jake.engine.load;
+
+/** Exposes the load as seen by the build scheduler, registered as {@link LoadMonitor#OBJECT_NAME}. */
+public interface LoadMXBean {
+    /** The load measured over the last sampling interval, i.e. the number of cores kept busy by this process. */
+    float getMeasuredLoad();
+
+    /** The load reserved for builds started after the last sample, and therefore not yet measured. */
+    float getReservedLoad();
+
+    /** The load the scheduler tries to keep. */
+    float getTargetLoad();
+
+    /** The number of builds being executed. */
+    int getActiveBuilds();
+}
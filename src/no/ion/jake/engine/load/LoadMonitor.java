@@ -0,0 +1,62 @@
+package no.ion.jake.engine.load;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/** Calculates the load of this process from consecutive samples of a {@link LoadProbe}. */
+public class LoadMonitor {
+    public static final String OBJECT_NAME = "no.ion.jake:type=Load";
+
+    private final LoadProbe probe;
+    private long lastCpuTimeNanos;
+    private long lastSampleNanos;
+
+    public LoadMonitor(LoadProbe probe) {
+        this.probe = probe;
+        this.lastCpuTimeNanos = probe.cpuTimeNanos();
+        this.lastSampleNanos = System.nanoTime();
+    }
+
+    /** Returns the load since the previous sample, or since construction. */
+    public synchronized float sample() {
+        long cpuTimeNanos = probe.cpuTimeNanos();
+        long sampleNanos = System.nanoTime();
+
+        long cpuNanos = Math.max(0L, cpuTimeNanos - lastCpuTimeNanos);
+        long wallNanos = sampleNanos - lastSampleNanos;
+        lastCpuTimeNanos = cpuTimeNanos;
+        lastSampleNanos = sampleNanos;
+
+        return wallNanos <= 0 ? 0f : cpuNanos / (float) wallNanos;
+    }
+
+    /** Registers the bean with the platform MBean server as {@link #OBJECT_NAME}, replacing any earlier bean. */
+    public static void register(LoadMXBean bean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(bean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(bean, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    public static void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (InstanceNotFoundException ignored) {
+            // already unregistered
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to unregister " + OBJECT_NAME, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package no.ion.jake.engine.load;
+
+/**
+ * Measures the CPU time consumed by this process, from which the load is calculated as the CPU time consumed
+ * over an interval divided by the length of the interval.
+ */
+public interface LoadProbe {
+    /** The total CPU time consumed by the process so far, or -1 if unavailable. */
+    long cpuTimeNanos();
+
+    /** Returns the most accurate probe available on this platform. */
+    static LoadProbe create() {
+        LoadProbe probe = new OperatingSystemLoadProbe();
+        if (probe.cpuTimeNanos() >= 0) {
+            return probe;
+        }
+
+        probe = new ProcStatLoadProbe();
+        if (probe.cpuTimeNanos() >= 0) {
+            return probe;
+        }
+
+        throw new IllegalStateException("unable to measure the CPU time of the process on this platform");
+    }
+}
@@ -0,0 +1,20 @@
+package no.ion.jake.engine.load;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/** A load probe based on {@link OperatingSystemMXBean#getProcessCpuTime()}, available on HotSpot based JVMs. */
+public class OperatingSystemLoadProbe implements LoadProbe {
+    private final OperatingSystemMXBean operatingSystemMXBean;
+
+    public OperatingSystemLoadProbe() {
+        java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        this.operatingSystemMXBean = bean instanceof OperatingSystemMXBean ? (OperatingSystemMXBean) bean : null;
+    }
+
+    @Override
+    public long cpuTimeNanos() {
+        return operatingSystemMXBean == null ? -1 : operatingSystemMXBean.getProcessCpuTime();
+    }
+}
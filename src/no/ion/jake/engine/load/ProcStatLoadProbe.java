@@ -0,0 +1,47 @@
+package no.ion.jake.engine.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A load probe reading the user and system time of the process from /proc/self/stat on Linux.
+ *
+ * <p>The times are in clock ticks, which are assumed to be the common USER_HZ of 100 per second since the JVM
+ * has no way of reading sysconf(_SC_CLK_TCK).</p>
+ */
+public class ProcStatLoadProbe implements LoadProbe {
+    private static final Path PROC_SELF_STAT = Path.of("/proc/self/stat");
+    private static final long NANOS_PER_CLOCK_TICK = 10_000_000L;
+
+    @Override
+    public long cpuTimeNanos() {
+        final String stat;
+        try {
+            stat = Files.readString(PROC_SELF_STAT, StandardCharsets.US_ASCII);
+        } catch (IOException | UncheckedIOException e) {
+            return -1;
+        }
+
+        // The second field is the executable name in parenthesis, which may contain spaces and parenthesis.
+        int endOfName = stat.lastIndexOf(')');
+        if (endOfName == -1) {
+            return -1;
+        }
+
+        // Fields after the name start with field 3 (state).  utime and stime are fields 14 and 15.
+        String[] fields = stat.substring(endOfName + 1).trim().split(" +");
+        if (fields.length < 13) {
+            return -1;
+        }
+
+        try {
+            long clockTicks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            return clockTicks * NANOS_PER_CLOCK_TICK;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
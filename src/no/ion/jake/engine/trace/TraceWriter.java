@@ -0,0 +1,165 @@
+package no.ion.jake.engine.trace;
+
+import no.ion.jake.util.Json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * Writes a Chrome Trace Event file, which can be opened in Perfetto (ui.perfetto.dev) or chrome://tracing.
+ *
+ * <p>The events are streamed to a buffered writer as they happen, with the timestamps relative to when the writer
+ * was opened.  The file uses the JSON array format, which the viewers accept even without the closing bracket, so a
+ * trace is readable up to the last flushed event if jake dies.  A failure to write stops the tracing, and is thrown
+ * by {@link #close()} rather than failing the build.</p>
+ */
+public class TraceWriter implements AutoCloseable {
+    private static final int PID = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final long originNanos = System.nanoTime();
+    private final Set<Long> namedThreads = new HashSet<>();
+    private final StringBuilder event = new StringBuilder();
+    private IOException exception = null;
+
+    public static TraceWriter open(Path path) {
+        Writer writer = uncheckIO(() -> Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+        return new TraceWriter(new BufferedWriter(writer, BUFFER_SIZE));
+    }
+
+    public static TraceWriter disabled() { return new TraceWriter(null); }
+
+    private TraceWriter(Writer writer) {
+        this.writer = writer;
+        if (writer != null) {
+            write("[\n{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + PID + ",\"args\":{\"name\":\"jake\"}}");
+        }
+    }
+
+    public boolean enabled() { return writer != null; }
+
+    /**
+     * Writes a complete event, a slice from start to end on the track of the thread.  The arguments are shown when
+     * the slice is selected, and must be strings, numbers or booleans.
+     */
+    public void slice(String category, String name, Thread thread, long startNanos, long endNanos,
+                      Map<String, ?> args) {
+        if (writer == null) return;
+
+        synchronized (event) {
+            nameThread(thread);
+            event.append(",\n{\"name\":");
+            appendString(name);
+            event.append(",\"cat\":");
+            appendString(category);
+            event.append(",\"ph\":\"X\",\"ts\":");
+            appendMicros(startNanos - originNanos);
+            event.append(",\"dur\":");
+            appendMicros(endNanos - startNanos);
+            event.append(",\"pid\":").append(PID).append(",\"tid\":").append(thread.getId());
+            appendArgs(args);
+            event.append('}');
+            flushEvent();
+        }
+    }
+
+    /** Writes the value of the counter track with the given name. */
+    public void counter(String name, long nanos, double value) {
+        if (writer == null) return;
+
+        synchronized (event) {
+            event.append(",\n{\"name\":");
+            appendString(name);
+            event.append(",\"ph\":\"C\",\"ts\":");
+            appendMicros(nanos - originNanos);
+            event.append(",\"pid\":").append(PID).append(",\"args\":{\"value\":").append(value).append("}}");
+            flushEvent();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) return;
+
+        synchronized (event) {
+            write("\n]\n");
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (exception == null) exception = e;
+            }
+            if (exception != null) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    private void nameThread(Thread thread) {
+        if (namedThreads.add(thread.getId())) {
+            event.append(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(PID)
+                    .append(",\"tid\":").append(thread.getId()).append(",\"args\":{\"name\":");
+            appendString(thread.getName());
+            event.append("}}");
+        }
+    }
+
+    private void appendArgs(Map<String, ?> args) {
+        if (args.isEmpty()) return;
+
+        event.append(",\"args\":{");
+        boolean first = true;
+        for (var entry : args.entrySet()) {
+            if (!first) event.append(',');
+            first = false;
+            appendString(entry.getKey());
+            event.append(':');
+            Object value = entry.getValue();
+            if (value instanceof Number || value instanceof Boolean) {
+                event.append(value);
+            } else {
+                appendString(String.valueOf(value));
+            }
+        }
+        event.append('}');
+    }
+
+    /** Appends the nanoseconds as microseconds with 3 decimals, without the cost of formatting a double. */
+    private void appendMicros(long nanos) {
+        nanos = Math.max(0L, nanos);
+        long fraction = nanos % 1000;
+        event.append(nanos / 1000).append('.');
+        if (fraction < 100) event.append('0');
+        if (fraction < 10) event.append('0');
+        event.append(fraction);
+    }
+
+    private void appendString(String string) {
+        Json.appendString(event, string);
+    }
+
+    private void flushEvent() {
+        write(event);
+        event.setLength(0);
+    }
+
+    private void write(CharSequence chars) {
+        if (exception != null) return;
+
+        try {
+            writer.append(chars);
+        } catch (IOException e) {
+            exception = e;
+        }
+    }
+}
@@ -13,6 +13,8 @@ public interface BuildMeta<ID extends NodeId> {
     ID id();
     Duration expectedBuildDuration();
     float expectedLoad();
+    /** An I/O-bound build is always started as soon as it is ready, as it does not count against the target load. */
+    boolean ioBound();
     Set<ID> dependencies();
     @Override String toString();
 }
@@ -1,5 +1,7 @@
 package no.ion.jake.graph;
 
+import java.util.Set;
+
 public interface BuildOrder<T> {
 
     interface NextBuild<U> {
@@ -12,5 +14,11 @@ public interface BuildOrder<T> {
 
     void reportActiveBuild(T build);
 
+    /** The number of builds that are ready, but not yet active. */
+    int readyBuilds();
+
     void reportCompletedBuild(T build);
+
+    /** The build failed:  Removes it and all builds that depend on it directly or indirectly, and returns the latter. */
+    Set<T> reportFailedBuild(T build);
 }
@@ -1,16 +1,25 @@
 package no.ion.jake.graph;
 
 import java.util.List;
+import java.util.Set;
 
 public class BuildOrderImpl<ID extends NodeId> implements BuildOrder<ID> {
 
     private final CriticalPathOrder<ID> criticalPathOrder;
 
     public static <ID_ extends NodeId> BuildOrder<ID_> make(List<BuildMeta<ID_>> nodes) {
-        CriticalPathOrder<ID_> order = CriticalPathOrder.order(nodes);
+        return make(nodes, SchedulingPolicy.CRITICAL_PATH);
+    }
+
+    public static <ID_ extends NodeId> BuildOrder<ID_> make(List<BuildMeta<ID_>> nodes, SchedulingPolicy policy) {
+        CriticalPathOrder<ID_> order = CriticalPathOrder.order(nodes, policy);
         return new BuildOrderImpl<>(order);
     }
 
+    public static <ID_ extends NodeId> BuildOrderFactory<ID_> factoryFor(SchedulingPolicy policy) {
+        return nodes -> make(nodes, policy);
+    }
+
     public BuildOrderImpl(CriticalPathOrder<ID> criticalPathOrder) {
         this.criticalPathOrder = criticalPathOrder;
     }
@@ -25,11 +34,21 @@ public class BuildOrderImpl<ID extends NodeId> implements BuildOrder<ID> {
         criticalPathOrder.reportActiveBuild(id);
     }
 
+    @Override
+    public int readyBuilds() {
+        return criticalPathOrder.readyBuilds();
+    }
+
     @Override
     public void reportCompletedBuild(ID id) {
         criticalPathOrder.reportCompletedBuild(id);
     }
 
+    @Override
+    public Set<ID> reportFailedBuild(ID id) {
+        return criticalPathOrder.reportFailedBuild(id);
+    }
+
     /** If this statement compiles, the verification that BuildOrderImpl::make conforms to BuildOrderFactory is complete. */
     private static final BuildOrderFactory<? extends NodeId> apiVerifier = BuildOrderImpl::make;
 }
@@ -1,63 +1,113 @@
 package no.ion.jake.graph;
 
-import java.util.Comparator;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * Orders the builds by their bottom level, the expected duration of the longest path from the start of the build to
+ * the end of all builds, so the critical path is started first.  Another {@link SchedulingPolicy} may be given to
+ * order the builds by a different priority.
+ *
+ * <p>The builds are vertices in an {@link IntGraph}, and their state is kept in arrays indexed by vertex, so
+ * ordering a graph of 100k builds takes a few MB of heap.</p>
+ */
 public class CriticalPathOrder<ID extends NodeId> implements BuildOrder<ID> {
-    private final Graph<BuildNode<ID>> pendingBuildsGraph;
-    private final Map<ID, Vertex<BuildNode<ID>>> verticesById;
+    private static final byte PENDING = 0;
+    private static final byte ACTIVE = 1;
+    private static final byte REMOVED = 2;
+
+    private final IntGraph<ID> graph;
+    private final float[] bottomLevelSeconds;
+    private final boolean[] ioBound;
+    private final byte[] states;
+    /** The number of dependencies of each vertex that have not completed. */
+    private final int[] pendingDependencies;
+    private final List<ID> predictedCriticalPath;
+    /**
+     * The pending vertices without pending dependencies, with the highest priority at the head.  The priorities of all
+     * policies, like the bottom level, are calculated from the whole graph up front and never need recalculation.
+     */
+    private final ReadyHeap readyVertices;
+    /** As readyVertices, but for the I/O-bound builds, which are returned first since they are always admitted. */
+    private final ReadyHeap readyIoBoundVertices;
+    private int numPending;
 
     public static <ID_ extends NodeId> CriticalPathOrder<ID_> order(List<BuildMeta<ID_>> builds) {
-        List<BuildNode<ID_>> buildNodes = builds.stream()
-                .map(BuildNode::new)
-                .collect(Collectors.toList());
-
-        var adapter = new NodeAdapter<BuildNode<ID_>, ID_>() {
-            @Override public ID_ idOf(BuildNode<ID_> buildNode) { return buildNode.buildMeta().id(); }
-            @Override public Set<ID_> dependenciesOf(BuildNode<ID_> buildNode) { return buildNode.buildMeta().dependencies(); }
-            @Override public String toStringOfId(ID_ id) { return id.toString(); }
-            @Override public String toString(BuildNode<ID_> buildNode) { return buildNode.toString(); }
+        return order(builds, SchedulingPolicy.CRITICAL_PATH);
+    }
+
+    public static <ID_ extends NodeId> CriticalPathOrder<ID_> order(List<BuildMeta<ID_>> builds, SchedulingPolicy policy) {
+        var adapter = new NodeAdapter<BuildMeta<ID_>, ID_>() {
+            @Override public ID_ idOf(BuildMeta<ID_> buildMeta) { return buildMeta.id(); }
+            @Override public Set<ID_> dependenciesOf(BuildMeta<ID_> buildMeta) { return buildMeta.dependencies(); }
+            @Override public String toString(BuildMeta<ID_> buildMeta) { return buildMeta.toString(); }
         };
 
-        Graph<BuildNode<ID_>> graph = Graph.fromAdapter(buildNodes, adapter);
+        IntGraph<ID_> graph = IntGraph.fromAdapter(builds, adapter);
 
-        DepthFirstSearch.Listener<BuildNode<ID_>> listener = new DepthFirstSearch.Listener<BuildNode<ID_>>() {
-            @Override
-            public void onStartOfVisit(Vertex<BuildNode<ID_>> vertex) {
-                // nothing
-            }
+        // In the post-order of a depth-first search through dependencies, all dependees of a vertex come after it.
+        // Traversing the post-order in reverse therefore calculates the bottom level of all dependees before the vertex.
+        int[] postOrder = new int[graph.numVertices()];
+        DepthFirstSearch.traverse(graph, new DepthFirstSearch.Listener() {
+            private int size = 0;
+            @Override public void onStartOfVisit(int vertex) {}
+            @Override public void onEndOfVisit(int vertex) { postOrder[size++] = vertex; }
+        });
 
-            @Override
-            public void onEndOfVisit(Vertex<BuildNode<ID_>> vertex) {
-                float minDependencies = vertex.dependencies().stream()
-                        .map(v -> v.get().minTimeSeconds())
-                        .min(Comparator.comparingDouble(x -> x))
-                        .orElse(0f);
-                vertex.get().updateMinTimeSeconds(minDependencies);
+        float[] bottomLevelSeconds = new float[graph.numVertices()];
+        for (int i = postOrder.length - 1; i >= 0; --i) {
+            int vertex = postOrder[i];
+            float maxBottomLevelOfDependees = 0f;
+            for (int j = 0; j < graph.numDependees(vertex); ++j) {
+                maxBottomLevelOfDependees = Math.max(maxBottomLevelOfDependees, bottomLevelSeconds[graph.dependee(vertex, j)]);
             }
-        };
+            // Use 0.001f to enforce strictly increasing bottomLevelSeconds in the critical path chain.
+            float expectedSeconds = builds.get(vertex).expectedBuildDuration().toMillis() / 1000f;
+            bottomLevelSeconds[vertex] = maxBottomLevelOfDependees + Math.max(0.001f, expectedSeconds);
+        }
 
-        DepthFirstSearch.traverse(graph, listener);
+        boolean[] ioBound = new boolean[graph.numVertices()];
+        for (int vertex = 0; vertex < ioBound.length; ++vertex) {
+            ioBound[vertex] = builds.get(vertex).ioBound();
+        }
 
-        return new CriticalPathOrder<>(graph);
+        float[] priorities = policy.priorities(graph, postOrder, builds, bottomLevelSeconds);
+        return new CriticalPathOrder<>(graph, bottomLevelSeconds, priorities, ioBound);
     }
 
-    private CriticalPathOrder(Graph<BuildNode<ID>> pendingBuildsGraph) {
-        this.pendingBuildsGraph = pendingBuildsGraph;
-        this.verticesById = pendingBuildsGraph.vertices().stream().collect(Collectors.toMap(
-                vertex -> vertex.get().buildMeta().id(),
-                vertex -> vertex));
+    private CriticalPathOrder(IntGraph<ID> graph, float[] bottomLevelSeconds, float[] priorities, boolean[] ioBound) {
+        this.graph = graph;
+        this.bottomLevelSeconds = bottomLevelSeconds;
+        this.ioBound = ioBound;
+        this.states = new byte[graph.numVertices()];
+        this.pendingDependencies = graph.newDependencyCounters();
+        this.readyVertices = new ReadyHeap(priorities);
+        this.readyIoBoundVertices = new ReadyHeap(priorities);
+        this.numPending = graph.numVertices();
+
+        int criticalPathStart = -1;
+        for (int vertex = 0; vertex < graph.numVertices(); ++vertex) {
+            if (pendingDependencies[vertex] == 0) {
+                readyHeapOf(vertex).add(vertex);
+                if (criticalPathStart == -1 || bottomLevelSeconds[vertex] > bottomLevelSeconds[criticalPathStart]) {
+                    criticalPathStart = vertex;
+                }
+            }
+        }
+        this.predictedCriticalPath = calculateCriticalPath(criticalPathStart);
     }
 
-    public boolean isEmpty() { return pendingBuildsGraph.isEmpty(); }
+    public boolean isEmpty() { return numPending == 0; }
+
+    /** The builds with the longest expected total duration, in build order, as calculated before any build started. */
+    public List<ID> predictedCriticalPath() { return predictedCriticalPath; }
 
     @Override
     public NextBuild<ID> calculateNextBuild() {
-        if (pendingBuildsGraph.isEmpty()) {
+        if (numPending == 0) {
             return new NextBuild<ID>() {
                 @Override public boolean isDone() { return true; }
                 @Override public boolean isReady() { throw new UnsupportedOperationException("all builds are done"); }
@@ -65,57 +115,196 @@ public class CriticalPathOrder<ID extends NodeId> implements BuildOrder<ID> {
             };
         }
 
-        return pendingBuildsGraph
-                .leaves()
-                .stream()
-                .filter(vertex -> vertex.get().state() == BuildNode.State.PENDING)
-                .max(Comparator.comparing((Vertex<BuildNode<ID>> vertex) -> vertex.get().minTimeSeconds()))
-                // If the cast to NextBuild<ID> is removed, this doesn't compile.  Why!?  The type created from
-                // an interface ("capture of") is materially different from the interface itself!?
-                .map(vertex -> (NextBuild<ID>) new NextBuild<ID>() {
-                    @Override public boolean isDone() { return false; }
-                    @Override public boolean isReady() { return true; }
-                    @Override public ID getReadyBuild() { return vertex.get().buildMeta().id(); }
-                })
-                .orElseGet(() -> new NextBuild<ID>() {
-                    @Override public boolean isDone() { return false; }
-                    @Override public boolean isReady() { return false; }
-                    @Override public ID getReadyBuild() { throw new UnsupportedOperationException("no builds are ready"); }
-                });
+        int vertex = readyIoBoundVertices.isEmpty() ? readyVertices.peek() : readyIoBoundVertices.peek();
+        if (vertex == -1) {
+            return new NextBuild<ID>() {
+                @Override public boolean isDone() { return false; }
+                @Override public boolean isReady() { return false; }
+                @Override public ID getReadyBuild() { throw new UnsupportedOperationException("no builds are ready"); }
+            };
+        }
+
+        ID id = graph.idOf(vertex);
+        return new NextBuild<ID>() {
+            @Override public boolean isDone() { return false; }
+            @Override public boolean isReady() { return true; }
+            @Override public ID getReadyBuild() { return id; }
+        };
     }
 
     @Override
     public void reportActiveBuild(ID id) {
-        Vertex<BuildNode<ID>> vertex = getVertexFromIdOrThrow(id);
-        vertex.get().setState(BuildNode.State.ACTIVE);
+        int vertex = getVertexFromIdOrThrow(id);
+        if (states[vertex] != PENDING) {
+            throw new IllegalStateException("illegal state transition of " + id + ": ACTIVE -> ACTIVE");
+        }
+        states[vertex] = ACTIVE;
+        // The active build is normally the head, making this O(log n).
+        readyHeapOf(vertex).remove(vertex);
+    }
+
+    @Override
+    public int readyBuilds() {
+        return readyVertices.size() + readyIoBoundVertices.size();
     }
 
     @Override
     public void reportCompletedBuild(ID id) {
-        Vertex<BuildNode<ID>> vertex = getVertexFromIdOrThrow(id);
-        pendingBuildsGraph.remove(vertex);
-        verticesById.remove(id);
+        int vertex = getVertexFromIdOrThrow(id);
+        remove(vertex);
+
+        for (int i = 0; i < graph.numDependees(vertex); ++i) {
+            int dependee = graph.dependee(vertex, i);
+            if (--pendingDependencies[dependee] == 0 && states[dependee] == PENDING) {
+                readyHeapOf(dependee).add(dependee);
+            }
+        }
+    }
+
+    @Override
+    public Set<ID> reportFailedBuild(ID id) {
+        int vertex = getVertexFromIdOrThrow(id);
+        remove(vertex);
+
+        // None of the dependees can be ready or active, as they all depend on the failed build.
+        var skipped = new HashSet<ID>();
+        int[] unvisited = new int[graph.numVertices()];
+        int numUnvisited = 0;
+        unvisited[numUnvisited++] = vertex;
+        while (numUnvisited > 0) {
+            int dependency = unvisited[--numUnvisited];
+            for (int i = 0; i < graph.numDependees(dependency); ++i) {
+                int dependee = graph.dependee(dependency, i);
+                if (states[dependee] != REMOVED) {
+                    remove(dependee);
+                    skipped.add(graph.idOf(dependee));
+                    unvisited[numUnvisited++] = dependee;
+                }
+            }
+        }
+
+        return skipped;
     }
 
-    private static <U extends NodeId> float calculateAndSetMinTimeSeconds(Vertex<BuildNode<U>> vertex) {
-        BuildNode<U> node = vertex.get();
-        if (node.minTimeSeconds() >= 0f) {
-            return node.minTimeSeconds();
+    private void remove(int vertex) {
+        if (states[vertex] == PENDING) {
+            readyHeapOf(vertex).remove(vertex);
         }
+        states[vertex] = REMOVED;
+        --numPending;
+    }
 
-        float minTimeOfDependencies = vertex.dependencies().stream()
-                .map(dependency -> calculateAndSetMinTimeSeconds(vertex))
-                .min(Float::compare)
-                .orElse(0f);
+    private ReadyHeap readyHeapOf(int vertex) {
+        return ioBound[vertex] ? readyIoBoundVertices : readyVertices;
+    }
 
-        return node.updateMinTimeSeconds(minTimeOfDependencies);
+    private List<ID> calculateCriticalPath(int start) {
+        var path = new ArrayList<ID>();
+        for (int vertex = start; vertex != -1; ) {
+            path.add(graph.idOf(vertex));
+            int next = -1;
+            for (int i = 0; i < graph.numDependees(vertex); ++i) {
+                int dependee = graph.dependee(vertex, i);
+                if (next == -1 || bottomLevelSeconds[dependee] > bottomLevelSeconds[next]) {
+                    next = dependee;
+                }
+            }
+            vertex = next;
+        }
+        return List.copyOf(path);
     }
 
-    private Vertex<BuildNode<ID>> getVertexFromIdOrThrow(ID id) {
-        var vertex = verticesById.get(id);
-        if (vertex == null) {
+    private int getVertexFromIdOrThrow(ID id) {
+        int vertex = graph.indexOf(id);
+        if (vertex == -1 || states[vertex] == REMOVED) {
             throw new IllegalArgumentException("no such node with ID: " + id.toString());
         }
         return vertex;
     }
+
+    /**
+     * A binary max-heap of vertices ordered by priority, and then by the lowest vertex, with the position of each
+     * vertex so that any vertex can be removed in O(log n).
+     */
+    private static class ReadyHeap {
+        private final float[] priorities;
+        private final int[] positions;
+        private int[] heap = new int[16];
+        private int size = 0;
+
+        private ReadyHeap(float[] priorities) {
+            this.priorities = priorities;
+            this.positions = new int[priorities.length];
+            Arrays.fill(positions, -1);
+        }
+
+        private boolean isEmpty() { return size == 0; }
+        private int size() { return size; }
+
+        /** Returns the head, or -1 if empty. */
+        private int peek() { return size == 0 ? -1 : heap[0]; }
+
+        private void add(int vertex) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            heap[size] = vertex;
+            positions[vertex] = size;
+            ++size;
+            siftUp(size - 1);
+        }
+
+        /** Removes the vertex if present. */
+        private void remove(int vertex) {
+            int position = positions[vertex];
+            if (position == -1) {
+                return;
+            }
+            positions[vertex] = -1;
+            --size;
+            if (position == size) {
+                return;
+            }
+
+            heap[position] = heap[size];
+            positions[heap[position]] = position;
+            siftDown(position);
+            siftUp(position);
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (!before(heap[position], heap[parent])) break;
+                swap(position, parent);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int first = position;
+                int left = 2 * position + 1;
+                int right = left + 1;
+                if (left < size && before(heap[left], heap[first])) first = left;
+                if (right < size && before(heap[right], heap[first])) first = right;
+                if (first == position) break;
+                swap(position, first);
+                position = first;
+            }
+        }
+
+        private boolean before(int left, int right) {
+            int comparison = Float.compare(priorities[left], priorities[right]);
+            return comparison > 0 || (comparison == 0 && left < right);
+        }
+
+        private void swap(int i, int j) {
+            int vertex = heap[i];
+            heap[i] = heap[j];
+            heap[j] = vertex;
+            positions[heap[i]] = i;
+            positions[heap[j]] = j;
+        }
+    }
 }
@@ -1,57 +1,73 @@
 package no.ion.jake.graph;
 
 public class DepthFirstSearch {
-    public interface Listener<U> {
-        void onStartOfVisit(Vertex<U> vertex);
-        void onEndOfVisit(Vertex<U> vertex);
+    public interface Listener {
+        void onStartOfVisit(int vertex);
+        void onEndOfVisit(int vertex);
     }
 
-    public static <T> void traverse(Graph<T> graph, Listener<T> listener) {
-        Graph<DFSNode<T>> dfsGraph = graph.transform(DFSNode::new);
-        for (var root : dfsGraph.roots()) {
-            if (root.get().color != DFSNode.Color.WHITE) {
-                throw new IllegalStateException("assumed root cannot be a root: " + root.get().originalVertex.toString());
-            }
+    private static final byte WHITE = 0;
+    private static final byte GRAY = 1;
+    private static final byte BLACK = 2;
+
+    /**
+     * Visits all vertices through dependencies, starting with the roots.  The search is iterative, so a long chain
+     * of dependencies does not overflow the stack.
+     *
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public static void traverse(IntGraph<?> graph, Listener listener) {
+        int numVertices = graph.numVertices();
+        byte[] colors = new byte[numVertices];
+        // The vertices being visited, and the index of the next dependency to search of each
+        int[] stack = new int[numVertices];
+        int[] nextDependency = new int[numVertices];
 
-            searchNode(root, listener);
+        for (int root = 0; root < numVertices; ++root) {
+            if (graph.numDependees(root) == 0) {
+                search(graph, root, listener, colors, stack, nextDependency);
+            }
         }
-    }
 
-    private static <V> void searchNode(Vertex<DFSNode<V>> vertex, Listener<V> listener) {
-        DFSNode<V> dfsNode = vertex.get();
-        switch (dfsNode.color()) {
-            case WHITE:
-                dfsNode.setColor(DFSNode.Color.GRAY);
-                Vertex<V> originalVertex = dfsNode.originalVertex();
-                listener.onStartOfVisit(originalVertex);
-                for (var dependency : vertex.dependencies()) {
-                    searchNode(dependency, listener);
-                }
-                dfsNode.setColor(DFSNode.Color.BLACK);
-                listener.onEndOfVisit(originalVertex);
-                break;
-            case GRAY:
-                throw new IllegalStateException("Loop discovered in depth-first search");
-            case BLACK:
-                return;
-            default:
-                throw new IllegalStateException("Unknown color");
+        // Vertices not reachable from a root are on a cycle, which is then discovered
+        for (int vertex = 0; vertex < numVertices; ++vertex) {
+            if (colors[vertex] == WHITE) {
+                search(graph, vertex, listener, colors, stack, nextDependency);
+            }
         }
     }
 
-    private static class DFSNode<W> {
+    private static void search(IntGraph<?> graph, int start, Listener listener, byte[] colors, int[] stack,
+                               int[] nextDependency) {
+        int depth = 0;
+        stack[depth] = start;
+        nextDependency[depth] = 0;
+        colors[start] = GRAY;
+        listener.onStartOfVisit(start);
 
-        private final Vertex<W> originalVertex;
-
-        public enum Color { WHITE, GRAY, BLACK }
-        private Color color = Color.WHITE;
-
-        public DFSNode(Vertex<W> originalVertex) {
-            this.originalVertex = originalVertex;
+        while (depth >= 0) {
+            int vertex = stack[depth];
+            if (nextDependency[depth] < graph.numDependencies(vertex)) {
+                int dependency = graph.dependency(vertex, nextDependency[depth]++);
+                switch (colors[dependency]) {
+                    case WHITE:
+                        colors[dependency] = GRAY;
+                        listener.onStartOfVisit(dependency);
+                        ++depth;
+                        stack[depth] = dependency;
+                        nextDependency[depth] = 0;
+                        break;
+                    case GRAY:
+                        throw new IllegalStateException("Loop discovered in depth-first search: " +
+                                graph.idOf(vertex) + " depends on " + graph.idOf(dependency));
+                    default:
+                        break;
+                }
+            } else {
+                colors[vertex] = BLACK;
+                listener.onEndOfVisit(vertex);
+                --depth;
+            }
         }
-
-        public Vertex<W> originalVertex() { return originalVertex; }
-        public Color color() { return color; }
-        public void setColor(Color color) { this.color = color; }
     }
 }
@@ -0,0 +1,136 @@
+package no.ion.jake.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable directed graph with the vertices numbered densely from 0, and the edges in compressed sparse row
+ * (CSR) arrays:  The dependencies of vertex v are {@code dependencies[dependencyOffsets[v]]} up to
+ * {@code dependencies[dependencyOffsets[v + 1]]}, and likewise for the dependees.  A graph of n vertices and e
+ * edges therefore takes 2n + 2e ints, in addition to the IDs.
+ *
+ * <p>Mutable state like whether a vertex is done, or the number of dependencies not yet done, is kept by the user
+ * in arrays indexed by vertex, see {@link #newDependencyCounters()}.</p>
+ *
+ * @param <ID> the type identifying a vertex
+ */
+public class IntGraph<ID> {
+    private final List<ID> ids;
+    private final Map<ID, Integer> indexById;
+    private final int[] dependencyOffsets;
+    private final int[] dependencies;
+    private final int[] dependeeOffsets;
+    private final int[] dependees;
+
+    /** Returns the graph where vertex i is {@code nodes.get(i)}. */
+    public static <U, ID_> IntGraph<ID_> fromAdapter(List<U> nodes, NodeAdapter<U, ID_> adapter) {
+        int numVertices = nodes.size();
+        var ids = new ArrayList<ID_>(numVertices);
+        var indexById = new HashMap<ID_, Integer>(numVertices * 4 / 3 + 1);
+        for (int i = 0; i < numVertices; ++i) {
+            U node = nodes.get(i);
+            ID_ id = adapter.idOf(node);
+            Integer previousIndex = indexById.put(id, i);
+            if (previousIndex != null) {
+                throw new IllegalArgumentException("node " + adapter.toString(nodes.get(previousIndex)) + " and node " +
+                        adapter.toString(node) + " have equal ID: " + adapter.toStringOfId(id));
+            }
+            ids.add(id);
+        }
+
+        int[] dependencyOffsets = new int[numVertices + 1];
+        int[] dependeeCounts = new int[numVertices];
+        var dependencies = new IntArray(numVertices);
+        for (int i = 0; i < numVertices; ++i) {
+            U node = nodes.get(i);
+            Set<ID_> dependencyIds = adapter.dependenciesOf(node);
+            for (ID_ dependencyId : dependencyIds) {
+                Integer dependency = indexById.get(dependencyId);
+                if (dependency == null) {
+                    throw new IllegalArgumentException("node " + adapter.toString(node) + " has a dependency on ID " +
+                            adapter.toStringOfId(dependencyId) + " which is not in the node set");
+                }
+                dependencies.add(dependency);
+                ++dependeeCounts[dependency];
+            }
+            dependencyOffsets[i + 1] = dependencies.size();
+        }
+
+        // The dependees are the reverse edges, filled in by counting sort on the dependency.
+        int[] dependeeOffsets = new int[numVertices + 1];
+        for (int i = 0; i < numVertices; ++i) {
+            dependeeOffsets[i + 1] = dependeeOffsets[i] + dependeeCounts[i];
+        }
+        int[] dependees = new int[dependencies.size()];
+        int[] next = Arrays.copyOf(dependeeOffsets, numVertices);
+        for (int i = 0; i < numVertices; ++i) {
+            for (int j = dependencyOffsets[i]; j < dependencyOffsets[i + 1]; ++j) {
+                dependees[next[dependencies.get(j)]++] = i;
+            }
+        }
+
+        return new IntGraph<>(ids, indexById, dependencyOffsets, dependencies.toArray(), dependeeOffsets, dependees);
+    }
+
+    private IntGraph(List<ID> ids, Map<ID, Integer> indexById, int[] dependencyOffsets, int[] dependencies,
+                     int[] dependeeOffsets, int[] dependees) {
+        this.ids = ids;
+        this.indexById = indexById;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencies = dependencies;
+        this.dependeeOffsets = dependeeOffsets;
+        this.dependees = dependees;
+    }
+
+    public int numVertices() { return ids.size(); }
+    public int numEdges() { return dependencies.length; }
+    public ID idOf(int vertex) { return ids.get(vertex); }
+
+    /** Returns the vertex with the ID, or -1 if there is none. */
+    public int indexOf(ID id) {
+        Integer index = indexById.get(id);
+        return index == null ? -1 : index;
+    }
+
+    public int numDependencies(int vertex) { return dependencyOffsets[vertex + 1] - dependencyOffsets[vertex]; }
+    public int dependency(int vertex, int i) { return dependencies[dependencyOffsets[vertex] + i]; }
+    public int numDependees(int vertex) { return dependeeOffsets[vertex + 1] - dependeeOffsets[vertex]; }
+    public int dependee(int vertex, int i) { return dependees[dependeeOffsets[vertex] + i]; }
+
+    /** Returns a new array with the number of dependencies of each vertex, to be counted down as they are done. */
+    public int[] newDependencyCounters() {
+        int[] counters = new int[numVertices()];
+        for (int vertex = 0; vertex < counters.length; ++vertex) {
+            counters[vertex] = numDependencies(vertex);
+        }
+        return counters;
+    }
+
+    @Override
+    public String toString() {
+        return "IntGraph{" + numVertices() + " vertices, " + numEdges() + " edges}";
+    }
+
+    /** A growable int array, to avoid boxing the edges while counting them. */
+    private static class IntArray {
+        private int[] values;
+        private int size = 0;
+
+        private IntArray(int initialCapacity) { this.values = new int[Math.max(initialCapacity, 16)]; }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int get(int index) { return values[index]; }
+        private int size() { return size; }
+        private int[] toArray() { return Arrays.copyOf(values, size); }
+    }
+}
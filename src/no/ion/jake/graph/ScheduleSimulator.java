@@ -0,0 +1,189 @@
+package no.ion.jake.graph;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * A deterministic discrete-event simulation of running builds in a {@link BuildOrder}, as the BuildGraph scheduler
+ * would:  Each build runs for its expected duration with its expected load, and the next build is started if it is
+ * I/O-bound, no CPU-bound build is running, or fewer CPU-bound builds than the rounded cores are running and the load
+ * of the running builds plus its own is less than the simulated cores plus 0.5.  Otherwise it is deferred, and no
+ * other build is started until a build completes.
+ *
+ * <p>Unlike a real build, the measured load is exactly the sum of the expected loads of the running builds, and the
+ * scheduler reacts instantly.  A simulation is therefore a lower bound on the makespan of a policy at a core
+ * count, but good for comparing policies and core counts against each other.</p>
+ */
+public class ScheduleSimulator<ID extends NodeId> {
+    /** As in BuildGraph:  A near-idle build still reserves some load. */
+    private static final float MIN_EXPECTED_LOAD = 0.1f;
+
+    private final List<BuildMeta<ID>> builds;
+    private final Map<ID, BuildMeta<ID>> buildsById = new HashMap<>();
+
+    /** The simulation is deterministic if the build order is deterministic for the given order of the builds. */
+    public ScheduleSimulator(List<BuildMeta<ID>> builds) {
+        this.builds = List.copyOf(builds);
+        builds.forEach(build -> buildsById.put(build.id(), build));
+    }
+
+    /** A period where at least one core was unused since no build was ready. */
+    public static class IdleGap<ID> {
+        private final long startNanos;
+        private long endNanos;
+        private final List<ID> runningBuilds;
+
+        private IdleGap(long startNanos, long endNanos, List<ID> runningBuilds) {
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+            this.runningBuilds = runningBuilds;
+        }
+
+        public Duration start() { return Duration.ofNanos(startNanos); }
+        public Duration duration() { return Duration.ofNanos(endNanos - startNanos); }
+
+        /** The builds running at the start of the gap, which the ready builds were waiting for. */
+        public List<ID> runningBuilds() { return runningBuilds; }
+    }
+
+    public static class Result<ID> {
+        private final float cores;
+        private final long makespanNanos;
+        private final double busyCoreNanos;
+        private final long deferredNanos;
+        private final List<IdleGap<ID>> idleGaps;
+
+        private Result(float cores, long makespanNanos, double busyCoreNanos, long deferredNanos, List<IdleGap<ID>> idleGaps) {
+            this.cores = cores;
+            this.makespanNanos = makespanNanos;
+            this.busyCoreNanos = busyCoreNanos;
+            this.deferredNanos = deferredNanos;
+            this.idleGaps = idleGaps;
+        }
+
+        public float cores() { return cores; }
+
+        /** The time from the start of the first build to the completion of the last. */
+        public Duration makespan() { return Duration.ofNanos(makespanNanos); }
+
+        /** The fraction of the core time of the makespan spent by the CPU-bound builds, given their expected load. */
+        public double utilisation() { return makespanNanos == 0 ? 0 : busyCoreNanos / (cores * makespanNanos); }
+
+        /** The time a ready build was deferred because the load would have exceeded the cores. */
+        public Duration deferred() { return Duration.ofNanos(deferredNanos); }
+
+        /** The periods where at least one core was unused since no build was ready, in chronological order. */
+        public List<IdleGap<ID>> idleGaps() { return idleGaps; }
+
+        public Duration idle() {
+            return Duration.ofNanos(idleGaps.stream().mapToLong(gap -> gap.endNanos - gap.startNanos).sum());
+        }
+    }
+
+    private static class Running<ID> {
+        private final ID id;
+        private final long endNanos;
+        private final long loadx1000;
+        private final long sequence;
+
+        private Running(ID id, long endNanos, long loadx1000, long sequence) {
+            this.id = id;
+            this.endNanos = endNanos;
+            this.loadx1000 = loadx1000;
+            this.sequence = sequence;
+        }
+    }
+
+    /** The expected duration of the longest chain of dependencies, a lower bound on the makespan at any core count. */
+    public Duration criticalPath() {
+        return CriticalPathOrder.order(builds).predictedCriticalPath().stream()
+                .map(id -> buildsById.get(id).expectedBuildDuration())
+                .reduce(Duration.ZERO, Duration::plus);
+    }
+
+    /** Simulates running the builds in the order given by the factory, on the given number of cores. */
+    public Result<ID> simulate(BuildOrderFactory<ID> buildOrderFactory, float cores) {
+        BuildOrder<ID> buildOrder = buildOrderFactory.make(builds);
+        var running = new PriorityQueue<Running<ID>>(Comparator
+                .comparingLong((Running<ID> build) -> build.endNanos)
+                .thenComparingLong(build -> build.sequence));
+        long sequence = 0;
+        long nowNanos = 0;
+        long loadx1000 = 0;
+        int activeCpuBuilds = 0;
+        double busyCoreNanos = 0;
+        long deferredNanos = 0;
+        var idleGaps = new ArrayList<IdleGap<ID>>();
+
+        while (true) {
+            boolean done = false;
+            boolean deferred = false;
+            while (true) {
+                BuildOrder.NextBuild<ID> nextBuild = buildOrder.calculateNextBuild();
+                if (nextBuild.isDone()) {
+                    done = true;
+                    break;
+                } else if (!nextBuild.isReady()) {
+                    break;
+                }
+
+                ID id = nextBuild.getReadyBuild();
+                BuildMeta<ID> build = buildsById.get(id);
+                long buildLoadx1000 = build.ioBound() ? 0L : (long) (expectedLoadOf(build, cores) * 1000L);
+                if (!build.ioBound() && activeCpuBuilds > 0 && (activeCpuBuilds >= Math.max(1, Math.round(cores)) ||
+                        (loadx1000 + buildLoadx1000) / 1000f >= cores + 0.5f)) {
+                    deferred = true;
+                    break;
+                }
+
+                buildOrder.reportActiveBuild(id);
+                long durationNanos = build.expectedBuildDuration().toNanos();
+                running.add(new Running<>(id, nowNanos + durationNanos, buildLoadx1000, sequence++));
+                loadx1000 += buildLoadx1000;
+                busyCoreNanos += buildLoadx1000 / 1000.0 * durationNanos;
+                if (!build.ioBound()) ++activeCpuBuilds;
+            }
+
+            if (running.isEmpty()) {
+                if (done) break;
+                throw new IllegalStateException("no builds are running, and none are ready");
+            }
+
+            long nextNanos = running.peek().endNanos;
+            if (deferred) {
+                deferredNanos += nextNanos - nowNanos;
+            } else if (cores - loadx1000 / 1000f >= 1f && nextNanos > nowNanos) {
+                IdleGap<ID> last = idleGaps.isEmpty() ? null : idleGaps.get(idleGaps.size() - 1);
+                if (last != null && last.endNanos == nowNanos) {
+                    last.endNanos = nextNanos;
+                } else {
+                    List<ID> runningBuilds = running.stream()
+                            .sorted(running.comparator())
+                            .map(build -> build.id)
+                            .collect(Collectors.toList());
+                    idleGaps.add(new IdleGap<>(nowNanos, nextNanos, runningBuilds));
+                }
+            }
+
+            nowNanos = nextNanos;
+            while (!running.isEmpty() && running.peek().endNanos == nowNanos) {
+                Running<ID> completed = running.poll();
+                loadx1000 -= completed.loadx1000;
+                if (!buildsById.get(completed.id).ioBound()) --activeCpuBuilds;
+                buildOrder.reportCompletedBuild(completed.id);
+            }
+        }
+
+        return new Result<>(cores, nowNanos, busyCoreNanos, deferredNanos, List.copyOf(idleGaps));
+    }
+
+    private static float expectedLoadOf(BuildMeta<?> build, float cores) {
+        return Math.max(MIN_EXPECTED_LOAD, Math.min(build.expectedLoad(), cores));
+    }
+}
@@ -0,0 +1,116 @@
+package no.ion.jake.graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The priority of the ready builds in {@link CriticalPathOrder}:  Of the ready builds, the one with the highest
+ * priority is started first.  I/O-bound builds are started before CPU-bound builds regardless of policy.
+ */
+public enum SchedulingPolicy {
+    /** The longest expected duration from the start of the build to the end of the builds depending on it. */
+    CRITICAL_PATH {
+        @Override
+        float[] priorities(IntGraph<?> graph, int[] postOrder, List<? extends BuildMeta<?>> builds, float[] bottomLevelSeconds) {
+            return bottomLevelSeconds;
+        }
+    },
+
+    /** The most builds depending on it, directly or indirectly, to unlock the most parallelism. */
+    MOST_DEPENDENTS {
+        @Override
+        float[] priorities(IntGraph<?> graph, int[] postOrder, List<? extends BuildMeta<?>> builds, float[] bottomLevelSeconds) {
+            int[] counts = transitiveDependeeCounts(graph, postOrder);
+            float[] priorities = new float[counts.length];
+            for (int vertex = 0; vertex < counts.length; ++vertex) {
+                priorities[vertex] = counts[vertex];
+            }
+            return priorities;
+        }
+    },
+
+    /** The shortest expected duration, to give feedback from as many builds as possible early. */
+    SHORTEST_JOB {
+        @Override
+        float[] priorities(IntGraph<?> graph, int[] postOrder, List<? extends BuildMeta<?>> builds, float[] bottomLevelSeconds) {
+            float[] priorities = new float[builds.size()];
+            for (int vertex = 0; vertex < priorities.length; ++vertex) {
+                priorities[vertex] = -builds.get(vertex).expectedBuildDuration().toMillis() / 1000f;
+            }
+            return priorities;
+        }
+    },
+
+    /**
+     * The sum of the bottom level relative to the longest, and the number of builds depending on it directly or
+     * indirectly relative to the most:  A build on a slightly shorter path, but blocking many more builds, goes first.
+     */
+    HYBRID {
+        @Override
+        float[] priorities(IntGraph<?> graph, int[] postOrder, List<? extends BuildMeta<?>> builds, float[] bottomLevelSeconds) {
+            int[] counts = transitiveDependeeCounts(graph, postOrder);
+            float maxBottomLevel = 0f;
+            int maxCount = 0;
+            for (int vertex = 0; vertex < counts.length; ++vertex) {
+                maxBottomLevel = Math.max(maxBottomLevel, bottomLevelSeconds[vertex]);
+                maxCount = Math.max(maxCount, counts[vertex]);
+            }
+
+            float[] priorities = new float[counts.length];
+            for (int vertex = 0; vertex < counts.length; ++vertex) {
+                priorities[vertex] = bottomLevelSeconds[vertex] / Math.max(maxBottomLevel, 0.001f) +
+                        counts[vertex] / (float) Math.max(maxCount, 1);
+            }
+            return priorities;
+        }
+    };
+
+    /**
+     * Returns the priority of each vertex.  The post-order of a depth-first search through dependencies has all
+     * dependees of a vertex after it, and bottomLevelSeconds is the priority of {@link #CRITICAL_PATH}.
+     */
+    abstract float[] priorities(IntGraph<?> graph, int[] postOrder, List<? extends BuildMeta<?>> builds,
+                                float[] bottomLevelSeconds);
+
+    /** The name used on the command line, e.g. "critical-path". */
+    public String policyName() { return name().toLowerCase(Locale.ROOT).replace('_', '-'); }
+
+    public static SchedulingPolicy fromPolicyName(String policyName) {
+        return Arrays.stream(values())
+                .filter(policy -> policy.policyName().equals(policyName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown scheduling policy '" + policyName +
+                        "', must be one of " + Arrays.stream(values()).map(SchedulingPolicy::policyName).collect(Collectors.joining(", "))));
+    }
+
+    /**
+     * Returns the number of vertices depending on each vertex, directly or indirectly.  A vertex may be reached
+     * through several paths, so the dependees are tracked in bit masks of 64 vertices at a time, in
+     * O((n / 64) * (n + e)) time.
+     */
+    private static int[] transitiveDependeeCounts(IntGraph<?> graph, int[] postOrder) {
+        int numVertices = graph.numVertices();
+        int[] counts = new int[numVertices];
+        long[] masks = new long[numVertices];
+        for (int first = 0; first < numVertices; first += 64) {
+            // masks[v] has bit i set if vertex first + i depends on v, directly or indirectly.  The reverse post-order
+            // visits all dependees of a vertex before the vertex itself.
+            for (int i = postOrder.length - 1; i >= 0; --i) {
+                int vertex = postOrder[i];
+                long mask = 0L;
+                for (int j = 0; j < graph.numDependees(vertex); ++j) {
+                    int dependee = graph.dependee(vertex, j);
+                    mask |= masks[dependee];
+                    if (dependee >= first && dependee < first + 64) {
+                        mask |= 1L << (dependee - first);
+                    }
+                }
+                masks[vertex] = mask;
+                counts[vertex] += Long.bitCount(mask);
+            }
+        }
+        return counts;
+    }
+}
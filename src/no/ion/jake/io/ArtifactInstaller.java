@@ -46,6 +46,7 @@ public class ArtifactInstaller {
 
             declaration.forBuild(new Build() {
                 @Override public String name() { return "install of " + mavenArtifactId.toRepoPath(); }
+                @Override public boolean ioBound() { return true; }
 
                 @Override
                 public void build(BuildContext buildContext) {
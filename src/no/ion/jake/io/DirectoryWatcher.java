@@ -0,0 +1,101 @@
+package no.ion.jake.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * Watches directory trees for changes with a {@link WatchService}.  Directories created within a watched tree are
+ * watched too.  A directory that does not exist when watched is ignored.
+ */
+public class DirectoryWatcher implements AutoCloseable {
+    private final WatchService watchService = uncheckIO(() -> FileSystems.getDefault().newWatchService());
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /** Watches the directory trees, in addition to those already watched. */
+    public void watch(Set<Path> roots) {
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                registerTree(root);
+            }
+        }
+    }
+
+    public int size() { return directories.size(); }
+
+    /**
+     * Blocks until a file is changed, and then until no file has changed for the quiet period, so that e.g. saving
+     * several files or a checkout causes only one build.  Returns the changed files and directories.
+     */
+    public Set<Path> awaitChanges(Duration quietPeriod) throws InterruptedException {
+        var changes = new HashSet<Path>();
+        WatchKey key = watchService.take();
+        do {
+            pollEvents(key, changes);
+            key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+        } while (key != null);
+        return changes;
+    }
+
+    @Override
+    public void close() {
+        uncheckIO(watchService::close);
+    }
+
+    private void pollEvents(WatchKey key, Set<Path> changes) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changes.add(directory);
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            changes.add(path);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                registerTree(path);
+            }
+        }
+
+        if (!key.reset()) {
+            // The directory was removed
+            directories.remove(key);
+        }
+    }
+
+    private void registerTree(Path root) {
+        for (Path directory : directoriesIn(root)) {
+            try {
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, directory);
+            } catch (IOException e) {
+                // The directory was removed after it was listed
+            }
+        }
+    }
+
+    private static Set<Path> directoriesIn(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isDirectory).collect(Collectors.toSet());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package no.ion.jake.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * SHA-256 digests of files and directory trees.
+ *
+ * <p>The digest of a regular file is cached by its path, size and last modified time, and the cache may be persisted
+ * between runs.  A file modified within {@link #RACY_MILLIS} before the cache is saved may be modified again with
+ * the same size and time, so such entries are not saved.</p>
+ */
+public class FileDigests {
+    private static final long RACY_MILLIS = 2000;
+
+    private final Path path;
+    private final Map<Path, Entry> entries;
+
+    /** Returns the cache persisted at path, or an empty cache if path does not exist. */
+    public static FileDigests load(Path path) {
+        var entries = new ConcurrentHashMap<Path, Entry>();
+
+        if (Files.isRegularFile(path)) {
+            List<String> lines = uncheckIO(() -> Files.readAllLines(path, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) continue;
+                try {
+                    entries.put(Path.of(fields[0]), new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+                } catch (IllegalArgumentException e) {
+                    // drop malformed line
+                }
+            }
+        }
+
+        return new FileDigests(path, entries);
+    }
+
+    /** Returns an empty cache that is never persisted. */
+    public static FileDigests inMemory() {
+        return new FileDigests(null, new ConcurrentHashMap<>());
+    }
+
+    private FileDigests(Path path, Map<Path, Entry> entries) {
+        this.path = path;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the hex digest of the content of a regular file, of a directory tree (relative paths and contents of all
+     * regular files), or a fixed string if there is no such file.  Thread-safe.
+     */
+    public String digestOf(Path path) {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(absolutePath, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return "absent";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (attributes.isDirectory()) {
+            return digestOfDirectory(absolutePath, file -> true);
+        } else {
+            return digestOfFile(absolutePath, attributes);
+        }
+    }
+
+    /**
+     * Returns the hex digest of the class files in a directory tree, ignoring other files like a manifest written into
+     * a classes directory by later builds, or a fixed string if there is no such directory.  Thread-safe.
+     */
+    public String digestOfClassFiles(Path directory) {
+        Path absolutePath = directory.toAbsolutePath().normalize();
+        if (!Files.isDirectory(absolutePath)) {
+            return "absent";
+        }
+        return digestOfDirectory(absolutePath, FileDigests::isClassFile);
+    }
+
+    public static boolean isClassFile(Path path) {
+        return path.getFileName().toString().endsWith(".class");
+    }
+
+    /** Writes the cache to its path, creating parent directories as necessary. */
+    public void save() {
+        if (path == null) {
+            return;
+        }
+
+        long racyLimitMillis = System.currentTimeMillis() - RACY_MILLIS;
+        String content = entries.entrySet().stream()
+                .filter(entry -> entry.getValue().lastModifiedMillis < racyLimitMillis)
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getKey() + "\t" + entry.getValue().size + "\t" + entry.getValue().lastModifiedMillis +
+                        "\t" + entry.getValue().digest + "\n")
+                .collect(Collectors.joining());
+
+        uncheckIO(() -> Files.createDirectories(path.getParent()));
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        uncheckIO(() -> Files.writeString(temporaryPath, content, StandardCharsets.UTF_8));
+        uncheckIO(() -> Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+    }
+
+    private String digestOfFile(Path file, BasicFileAttributes attributes) {
+        long size = attributes.size();
+        long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+
+        Entry entry = entries.get(file);
+        if (entry != null && entry.size == size && entry.lastModifiedMillis == lastModifiedMillis) {
+            return entry.digest;
+        }
+
+        MessageDigest messageDigest = newMessageDigest();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int n; (n = inputStream.read(buffer)) != -1; ) {
+                messageDigest.update(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String digest = toHex(messageDigest.digest());
+        entries.put(file, new Entry(size, lastModifiedMillis, digest));
+        return digest;
+    }
+
+    private String digestOfDirectory(Path directory, Predicate<Path> filter) {
+        var files = new ArrayList<Path>();
+        try (Stream<Path> stream = Files.walk(directory)) {
+            stream.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS))
+                    .filter(filter)
+                    .forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        files.sort(null);
+
+        MessageDigest messageDigest = newMessageDigest();
+        for (Path file : files) {
+            BasicFileAttributes attributes = uncheckIO(() -> Files.readAttributes(file, BasicFileAttributes.class));
+            messageDigest.update(directory.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+            messageDigest.update(digestOfFile(file, attributes).getBytes(StandardCharsets.US_ASCII));
+            messageDigest.update((byte) '\n');
+        }
+
+        return toHex(messageDigest.digest());
+    }
+
+    public static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        var builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long lastModifiedMillis;
+        private final String digest;
+
+        private Entry(long size, long lastModifiedMillis, String digest) {
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.digest = digest;
+        }
+    }
+}
@@ -12,7 +12,13 @@ public class FileSet2 {
         this.files = Map.copyOf(files);
     }
 
+    public int size() { return files.size(); }
+
     public List<Path> toPathList() {
         return files.values().stream().map(FileInfo::path).collect(Collectors.toList());
     }
+
+    public List<FileInfo> toFileInfoList() {
+        return List.copyOf(files.values());
+    }
 }
@@ -4,6 +4,7 @@ import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
 import no.ion.jake.build.Declarator;
+import no.ion.jake.build.ModuleContext;
 
 import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
@@ -14,7 +15,9 @@ import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFileAttributes;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static no.ion.jake.util.Exceptions.uncheckIO;
 
@@ -71,6 +74,12 @@ public class FileTreeScanner implements Build {
     }
 
     @Override public String name() { return "finding " + name; }
+    @Override public boolean ioBound() { return true; }
+
+    @Override
+    public List<Path> watchedDirectories(ModuleContext moduleContext) {
+        return includes.keySet().stream().map(moduleContext::resolve).collect(Collectors.toList());
+    }
 
     @Override
     public void build(BuildContext buildContext) {
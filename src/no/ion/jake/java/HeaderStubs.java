@@ -0,0 +1,211 @@
+package no.ion.jake.java;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.PrimitiveTypeTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Strips a parsed compilation unit down to its ABI:  Method and constructor bodies throw, initializer blocks are
+ * emptied, and field initializers are replaced by default values.  Initializers of final fields of primitive or String
+ * type are kept, since they may be constants inlined by the compiler.
+ *
+ * <p>Compiling the stub is much cheaper than compiling the source, since the bodies need neither attribution, flow
+ * analysis, nor code generation, and the class files are unchanged by any change to the bodies.</p>
+ */
+class HeaderStubs extends TreeScanner<Void, Void> {
+    private static final String THROW = "throw new AssertionError(\"header stub\");";
+
+    private final CompilationUnitTree unit;
+    private final SourcePositions positions;
+    private final String source;
+    private final List<Replacement> replacements = new ArrayList<>();
+
+    private static class Replacement {
+        final int start;
+        final int end;
+        final String text;
+
+        Replacement(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+    /** Returns the source of the stub of the compilation unit, whose source is given. */
+    static String strip(CompilationUnitTree unit, SourcePositions positions, String source) {
+        var stubs = new HeaderStubs(unit, positions, source);
+        stubs.scan(unit, null);
+        return stubs.stubSource();
+    }
+
+    private HeaderStubs(CompilationUnitTree unit, SourcePositions positions, String source) {
+        this.unit = unit;
+        this.positions = positions;
+        this.source = source;
+    }
+
+    @Override
+    public Void visitClass(ClassTree classTree, Void ignored) {
+        for (Tree member : classTree.getMembers()) {
+            switch (member.getKind()) {
+                case METHOD:
+                    stripMethod((MethodTree) member);
+                    break;
+                case VARIABLE:
+                    stripField(classTree, (VariableTree) member);
+                    break;
+                case BLOCK:
+                    // "if (true)" since an initializer must be able to complete normally.  The throw makes any blank
+                    // final field definitely assigned, as the initializer may have assigned it.
+                    replaceBlock((BlockTree) member, "{ if (true) " + THROW + " }");
+                    break;
+                default:
+                    scan(member, null);
+            }
+        }
+        return null;
+    }
+
+    private void stripMethod(MethodTree method) {
+        BlockTree body = method.getBody();
+        if (body == null) {
+            return;  // abstract or native
+        }
+
+        // A constructor must keep its explicit this(...) or super(...) invocation.
+        String constructorInvocation = "";
+        if (method.getName().contentEquals("<init>") && !body.getStatements().isEmpty()) {
+            StatementTree first = body.getStatements().get(0);
+            if (isConstructorInvocation(first)) {
+                constructorInvocation = sourceOf(first) + " ";
+            }
+        }
+
+        replaceBlock(body, "{ " + constructorInvocation + THROW + " }");
+    }
+
+    private void stripField(ClassTree classTree, VariableTree field) {
+        ExpressionTree initializer = field.getInitializer();
+        if (initializer == null) {
+            return;
+        }
+
+        if (isEnumConstant(classTree, field)) {
+            ClassTree enumConstantBody = ((NewClassTree) initializer).getClassBody();
+            if (enumConstantBody != null) {
+                visitClass(enumConstantBody, null);
+            }
+            return;
+        }
+
+        boolean isFinal = field.getModifiers().getFlags().contains(Modifier.FINAL) ||
+                classTree.getKind() == Tree.Kind.INTERFACE || classTree.getKind() == Tree.Kind.ANNOTATION_TYPE;
+        Tree type = field.getType();
+        if (isFinal && (type.getKind() == Tree.Kind.PRIMITIVE_TYPE || isString(type))) {
+            return;
+        }
+
+        String defaultValue;
+        if (type.getKind() != Tree.Kind.PRIMITIVE_TYPE) {
+            defaultValue = "null";
+        } else if (((PrimitiveTypeTree) type).getPrimitiveTypeKind() == TypeKind.BOOLEAN) {
+            defaultValue = "false";
+        } else {
+            defaultValue = "0";
+        }
+        replace(initializer, defaultValue);
+    }
+
+    private boolean isEnumConstant(ClassTree classTree, VariableTree field) {
+        // The parser gives the implicit type of an enum constant the position of the constant's name.
+        return classTree.getKind() == Tree.Kind.ENUM &&
+                field.getInitializer().getKind() == Tree.Kind.NEW_CLASS &&
+                source.startsWith(field.getName().toString(), (int) positions.getStartPosition(unit, field.getType()));
+    }
+
+    private static boolean isString(Tree type) {
+        switch (type.getKind()) {
+            case IDENTIFIER:
+                return ((IdentifierTree) type).getName().contentEquals("String");
+            case MEMBER_SELECT:
+                return type.toString().equals("java.lang.String");
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isConstructorInvocation(StatementTree statement) {
+        if (statement.getKind() != Tree.Kind.EXPRESSION_STATEMENT) {
+            return false;
+        }
+        ExpressionTree expression = ((ExpressionStatementTree) statement).getExpression();
+        if (expression.getKind() != Tree.Kind.METHOD_INVOCATION) {
+            return false;
+        }
+        ExpressionTree select = ((MethodInvocationTree) expression).getMethodSelect();
+        switch (select.getKind()) {
+            case IDENTIFIER:
+                String name = ((IdentifierTree) select).getName().toString();
+                return name.equals("this") || name.equals("super");
+            case MEMBER_SELECT:
+                // outer.super(...)
+                return ((MemberSelectTree) select).getIdentifier().contentEquals("super");
+            default:
+                return false;
+        }
+    }
+
+    private void replaceBlock(BlockTree block, String text) {
+        // The block of a static initializer starts at "static".
+        int start = source.indexOf('{', (int) positions.getStartPosition(unit, block));
+        addReplacement(start, (int) positions.getEndPosition(unit, block), text);
+    }
+
+    private void replace(Tree tree, String text) {
+        addReplacement((int) positions.getStartPosition(unit, tree), (int) positions.getEndPosition(unit, tree), text);
+    }
+
+    /**
+     * The replacement is followed by the newlines of the replaced source, so the stub has the same line numbers as the
+     * source, which the compiler reports diagnostics of the stub against.
+     */
+    private void addReplacement(int start, int end, String text) {
+        long newlines = source.substring(start, end).chars().filter(c -> c == '\n').count();
+        replacements.add(new Replacement(start, end, text + "\n".repeat((int) newlines)));
+    }
+
+    private String sourceOf(Tree tree) {
+        return source.substring((int) positions.getStartPosition(unit, tree), (int) positions.getEndPosition(unit, tree));
+    }
+
+    private String stubSource() {
+        replacements.sort(Comparator.comparingInt(replacement -> replacement.start));
+        var stub = new StringBuilder(source.length());
+        int position = 0;
+        for (Replacement replacement : replacements) {
+            stub.append(source, position, replacement.start).append(replacement.text);
+            position = replacement.end;
+        }
+        return stub.append(source, position, source.length()).toString();
+    }
+}
@@ -1,9 +1,12 @@
 package no.ion.jake.java;
 
+import no.ion.jake.jfr.ToolEvent;
+
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.List;
-import java.util.spi.ToolProvider;
+import java.util.zip.ZipFile;
 
 public class Jar {
     private final java.util.spi.ToolProvider jarTool;
@@ -18,12 +21,45 @@ public class Jar {
         PrintWriter outputPrintWriter = new PrintWriter(outputStringWriter);
         String[] argumentsArray = arguments.toArray(String[]::new);
 
+        var event = new ToolEvent();
+        event.begin();
         int code = jarTool.run(outputPrintWriter, outputPrintWriter, argumentsArray);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tool = "jar";
+            event.arguments = arguments.size();
+            event.files = code == 0 ? entriesIn(arguments) : 0;
+            event.exitCode = code;
+            event.commit();
+        }
 
         outputPrintWriter.flush();
         return new Result(code, outputStringWriter.toString());
     }
 
+    /** The number of entries in the JAR file given by -f or --file, or 0 if unknown. */
+    private static int entriesIn(List<String> arguments) {
+        String jarFile = null;
+        for (int i = 0; i < arguments.size(); ++i) {
+            String argument = arguments.get(i);
+            if ((argument.equals("-f") || argument.equals("--file")) && i + 1 < arguments.size()) {
+                jarFile = arguments.get(i + 1);
+            } else if (argument.startsWith("--file=")) {
+                jarFile = argument.substring("--file=".length());
+            }
+        }
+
+        if (jarFile == null) {
+            return 0;
+        }
+
+        try (var zipFile = new ZipFile(jarFile)) {
+            return zipFile.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     public static class Result {
         private final int code;
         private final String out;
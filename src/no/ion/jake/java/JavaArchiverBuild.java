@@ -3,6 +3,8 @@ package no.ion.jake.java;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
+import no.ion.jake.build.ModuleContext;
 
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
@@ -38,6 +40,15 @@ public class JavaArchiverBuild implements Build {
 
     @Override public String name() { return name; }
 
+    @Override
+    public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+        fingerprint.putString(mode)
+                .putPath(moduleContext.resolve(jarPath))
+                .putString(mainClass)
+                .putBoolean(manifestPathArtifact != null);
+        return true;
+    }
+
     @Override
     public void build(BuildContext buildContext) {
         var jarArguments = new ArrayList<String>();
@@ -15,8 +15,10 @@ public class JavaCompiler {
     private final List<String> passthroughJavacArguments = new ArrayList<>();
     private final List<ClassPathEntry> classPath = new ArrayList<>();
     private Path destinationDirectory;
+    private Path headerDestinationDirectory;
 
     private boolean declareCompileCalled = false;
+    private boolean declareHeaderCompileCalled = false;
 
     public JavaCompiler(Javac javac, String nameOrNull) {
         this.javac = javac;
@@ -48,6 +50,11 @@ public class JavaCompiler {
         return this;
     }
 
+    public JavaCompiler setHeaderDestinationDirectory(Path headerDestinationDirectory) {
+        this.headerDestinationDirectory = headerDestinationDirectory;
+        return this;
+    }
+
     public Artifact<Path> declareCompile(Declarator declarator) {
         if (declareCompileCalled) {
             throw new IllegalStateException("declareCompile() can only be invoked once");
@@ -64,4 +71,26 @@ public class JavaCompiler {
             return destinationDirectoryArtifact;
         }
     }
+
+    /**
+     * Declares the compilation of the ABI of the sources to the header destination directory, which can be used in
+     * place of the classes on the class path of other compilations.  It is cheaper than the compilation of the
+     * sources, and its classes change only when the signatures or constants change.
+     */
+    public Artifact<Path> declareHeaderCompile(Declarator declarator) {
+        if (declareHeaderCompileCalled) {
+            throw new IllegalStateException("declareHeaderCompile() can only be invoked once");
+        }
+        declareHeaderCompileCalled = true;
+
+        try (Declarator.BuildDeclaration compilation = declarator.declareNewBuild()) {
+            sourceFilesArtifacts.forEach(compilation::dependsOn);
+            classPath.forEach(entry -> entry.getArtifact().ifPresent(compilation::dependsOn));
+            String artifactNamePrefix = (nameOrNull == null || nameOrNull.isEmpty()) ? "" : nameOrNull + " ";
+            Artifact<Path> destinationDirectoryArtifact = compilation.producesArtifact(Path.class, artifactNamePrefix + "header classes");
+            compilation.forBuild(new JavaCompilerBuild(javac, nameOrNull, sourceFilesArtifacts, passthroughJavacArguments, classPath,
+                    headerDestinationDirectory, destinationDirectoryArtifact, true));
+            return destinationDirectoryArtifact;
+        }
+    }
 }
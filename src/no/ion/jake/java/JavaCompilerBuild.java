@@ -4,6 +4,8 @@ import no.ion.jake.JakeException;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
+import no.ion.jake.build.ModuleContext;
 import no.ion.jake.io.FileSet2;
 
 import java.nio.file.Files;
@@ -22,10 +24,19 @@ public class JavaCompilerBuild implements Build {
     private final List<ClassPathEntry> classPath;
     private final Path destinationDirectory;
     private final Artifact<Path> destinationDirectoryArtifact;
+    private final boolean headers;
 
     public JavaCompilerBuild(Javac javac, String nameOrNull, List<Artifact<FileSet2>> sourceFileArtifacts,
                              List<String> passthroughJavacArguments, List<ClassPathEntry> classPath, Path destinationDirectory,
                              Artifact<Path> destinationDirectoryArtifact) {
+        this(javac, nameOrNull, sourceFileArtifacts, passthroughJavacArguments, classPath, destinationDirectory,
+                destinationDirectoryArtifact, false);
+    }
+
+    /** If headers is true, only the ABI of the sources is compiled, see {@link Javac#compileHeaders}. */
+    public JavaCompilerBuild(Javac javac, String nameOrNull, List<Artifact<FileSet2>> sourceFileArtifacts,
+                             List<String> passthroughJavacArguments, List<ClassPathEntry> classPath, Path destinationDirectory,
+                             Artifact<Path> destinationDirectoryArtifact, boolean headers) {
         this.javac = javac;
         this.nameOrNull = nameOrNull;
         this.sourceFileArtifacts = List.copyOf(sourceFileArtifacts);
@@ -33,17 +44,27 @@ public class JavaCompilerBuild implements Build {
         this.classPath = List.copyOf(classPath);
         this.destinationDirectory = destinationDirectory;
         this.destinationDirectoryArtifact = destinationDirectoryArtifact;
+        this.headers = headers;
     }
 
     @Override
     public String name() {
         String prefix = (nameOrNull == null || nameOrNull.isEmpty()) ? "" : nameOrNull + " ";
-        return prefix + "source compilation";
+        return prefix + (headers ? "header compilation" : "source compilation");
+    }
+
+    @Override
+    public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+        fingerprint.putStrings(passthroughJavacArguments)
+                .putBoolean(headers)
+                .putPath(destinationDirectory == null ? null : moduleContext.resolve(destinationDirectory));
+        addClassPathTo(fingerprint, classPath);
+        return true;
     }
 
     @Override
     public void build(BuildContext buildContext) throws JavaCompilerException {
-        var arguments = new ArrayList<String>(passthroughJavacArguments);
+        var arguments = new ArrayList<String>(headers ? headerArguments(passthroughJavacArguments) : passthroughJavacArguments);
 
         arguments.add("-cp");
         arguments.add(makeClassPathString(classPath));
@@ -64,11 +85,12 @@ public class JavaCompilerBuild implements Build {
                     .publish(resolvedDestinationDirectory);
             return;
         }
-        arguments.addAll(sourceFiles);
-
-        buildContext.log().debug(() -> "javac " + String.join(" ", arguments));
+        buildContext.log().debug(() -> "javac " + String.join(" ", arguments) + " " + String.join(" ", sourceFiles));
 
-        Javac.CompileResult result = javac.compile(arguments);
+        String classFilesDigestBefore = classFilesDigest(buildContext, resolvedDestinationDirectory);
+        Javac.CompileResult result = headers ?
+                javac.compileHeaders(arguments, sourceFiles, buildContext::isCancelled) :
+                javac.compile(arguments, sourceFiles, buildContext::isCancelled);
 
         if (result.code != 0) {
             throw new JavaCompilerException(result.message);
@@ -78,15 +100,35 @@ public class JavaCompilerBuild implements Build {
             buildContext.log().warning(result.message);
         }
 
+        // E.g. changing only a comment typically gives identical class files, and the builds depending on them
+        // need not be rerun.
+        boolean hasChanged = !classFilesDigest(buildContext, resolvedDestinationDirectory).equals(classFilesDigestBefore);
+
         int numFilesCompiled = sourceFiles.size();
         buildContext.newPublicationOf(destinationDirectoryArtifact)
-                .logWithDuration(String.format("compiled %d file%s to %s",
+                .logWithDuration(String.format("compiled %s%d file%s to %s%s",
+                        headers ? "headers of " : "",
                         numFilesCompiled,
                         numFilesCompiled == 1 ? "" : "s",
-                        destinationDirectory))
+                        destinationDirectory,
+                        hasChanged ? "" : " (unchanged)"))
+                .hasChanged(hasChanged)
                 .publish(resolvedDestinationDirectory);
     }
 
+    /**
+     * The arguments for compiling the headers:  The lint options are dropped since the stubs have none of the code
+     * warned about, and the debug info since it would change the class files on changes to e.g. line numbers.
+     */
+    private static List<String> headerArguments(List<String> passthroughJavacArguments) {
+        var arguments = passthroughJavacArguments.stream()
+                .filter(argument -> !argument.startsWith("-Xlint") && !argument.startsWith("-g") &&
+                        !argument.equals("-Werror") && !argument.equals("-O") && !argument.startsWith("-proc:"))
+                .collect(Collectors.toCollection(ArrayList::new));
+        arguments.addAll(List.of("-g:none", "-proc:none", "-nowarn"));
+        return arguments;
+    }
+
     public static String makeClassPathString(List<ClassPathEntry> classPath) {
         String classPathString = classPath.stream()
 
@@ -102,6 +144,22 @@ public class JavaCompilerBuild implements Build {
         return classPathString.isEmpty() ? "." : classPathString;
     }
 
+    /** Adds the class path, and the content of the entries that are not artifacts, to the fingerprint. */
+    public static void addClassPathTo(Fingerprint fingerprint, List<ClassPathEntry> classPath) {
+        classPath.forEach(entry -> {
+            if (entry.getArtifact().isPresent()) {
+                fingerprint.putPath(entry.getValidatedPath());
+            } else {
+                fingerprint.putFile(entry.getValidatedPath());
+            }
+        });
+    }
+
+    /** The digest of the class files in the directory, ignoring other files like a manifest written by other builds. */
+    private static String classFilesDigest(BuildContext buildContext, Path directory) {
+        return buildContext.newFingerprint().putClassFiles(directory).hex();
+    }
+
     private static List<String> resolveSourceFiles(List<Artifact<FileSet2>> sourceFileArtifacts) {
         return sourceFileArtifacts.stream()
                 .map(Artifact::detail)
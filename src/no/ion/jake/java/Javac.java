@@ -1,11 +1,29 @@
 package no.ion.jake.java;
 
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.Trees;
 import no.ion.jake.UserError;
+import no.ion.jake.build.BuildCancelledException;
+import no.ion.jake.jfr.ToolEvent;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 /**
  * Wraps {@link javax.tools.JavaCompiler}
@@ -33,9 +51,113 @@ public class Javac {
         }
     }
 
-    public CompileResult compile(List<String> commandLine) {
-        var outStream = new ByteArrayOutputStream();
-        int code = javaCompiler.run(InputStream.nullInputStream(), outStream, outStream, commandLine.toArray(String[]::new));
-        return new CompileResult(code, outStream.toString(StandardCharsets.UTF_8));
+    /**
+     * Compiles the source files with the given options (excluding source files), polling isCancelled as each
+     * file is parsed, analyzed and generated.
+     *
+     * @throws BuildCancelledException if isCancelled returned true
+     */
+    public CompileResult compile(List<String> options, List<String> sourceFiles, BooleanSupplier isCancelled) {
+        var stringWriter = new StringWriter();
+        StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        try (fileManager) {
+            var task = (JavacTask) javaCompiler.getTask(stringWriter, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromStrings(sourceFiles));
+            return call(task, "javac", options, sourceFiles, stringWriter, isCancelled);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compiles the ABI of the source files:  The class files have the same signatures and constants as those of
+     * {@link #compile}, but the method bodies throw.  The sources are parsed, the bodies stripped (see
+     * {@link HeaderStubs}), and the stubs compiled without annotation processing.
+     *
+     * @throws BuildCancelledException if isCancelled returned true
+     */
+    public CompileResult compileHeaders(List<String> options, List<String> sourceFiles, BooleanSupplier isCancelled) {
+        var stringWriter = new StringWriter();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        try (fileManager) {
+            var parseTask = (JavacTask) javaCompiler.getTask(stringWriter, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromStrings(sourceFiles));
+            Iterable<? extends CompilationUnitTree> units = parseTask.parse();
+
+            // Report syntax errors against the sources rather than the stubs.
+            String errors = diagnostics.getDiagnostics().stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n"));
+            if (!errors.isEmpty()) {
+                return new CompileResult(1, errors);
+            }
+
+            SourcePositions positions = Trees.instance(parseTask).getSourcePositions();
+            var stubs = new ArrayList<JavaFileObject>();
+            for (CompilationUnitTree unit : units) {
+                String source = unit.getSourceFile().getCharContent(true).toString();
+                stubs.add(new StubFileObject(unit.getSourceFile().toUri(), HeaderStubs.strip(unit, positions, source)));
+            }
+
+            var task = (JavacTask) javaCompiler.getTask(stringWriter, fileManager, null, options, null, stubs);
+            return call(task, "javac-header", options, sourceFiles, stringWriter, isCancelled);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static CompileResult call(JavacTask task, String tool, List<String> options, List<String> sourceFiles,
+                                      StringWriter stringWriter, BooleanSupplier isCancelled) {
+        task.addTaskListener(new TaskListener() {
+            @Override public void started(TaskEvent event) { throwIfCancelled(); }
+            @Override public void finished(TaskEvent event) { throwIfCancelled(); }
+            private void throwIfCancelled() {
+                if (isCancelled.getAsBoolean()) {
+                    throw new BuildCancelledException();
+                }
+            }
+        });
+
+        var event = new ToolEvent();
+        event.begin();
+        boolean success;
+        try {
+            success = task.call();
+        } catch (RuntimeException e) {
+            // javac wraps exceptions thrown by listeners
+            if (isCancelled.getAsBoolean()) {
+                throw new BuildCancelledException();
+            }
+            throw e;
+        }
+        int code = success ? 0 : 1;
+        event.end();
+        if (event.shouldCommit()) {
+            event.tool = tool;
+            event.arguments = options.size();
+            event.files = sourceFiles.size();
+            event.exitCode = code;
+            event.commit();
+        }
+
+        return new CompileResult(code, stringWriter.toString());
+    }
+
+    private static class StubFileObject extends SimpleJavaFileObject {
+        private final String source;
+
+        /**
+         * The URI of the source file makes javac check its name, and refer to it in diagnostics, whose line numbers
+         * are those of the source since the stub keeps its lines.
+         */
+        StubFileObject(URI sourceUri, String source) {
+            super(sourceUri, Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) { return source; }
     }
 }
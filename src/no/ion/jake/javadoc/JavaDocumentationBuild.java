@@ -3,6 +3,8 @@ package no.ion.jake.javadoc;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
+import no.ion.jake.build.ModuleContext;
 import no.ion.jake.io.FileSet;
 import no.ion.jake.io.PathPattern;
 import no.ion.jake.java.ClassPathEntry;
@@ -51,6 +53,17 @@ public class JavaDocumentationBuild implements Build {
         return name;
     }
 
+    @Override
+    public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+        JavaCompilerBuild.addClassPathTo(fingerprint, classPathEntries);
+        fingerprint.putStrings(extraArguments)
+                .putPath(moduleContext.resolve(destinationDirectory))
+                .putString(mavenArtifactId.version())
+                .putString(header)
+                .putString(bottom);
+        return true;
+    }
+
     @Override
     public void build(BuildContext buildContext) {
         var arguments = new ArrayList<String>();
@@ -110,11 +123,12 @@ public class JavaDocumentationBuild implements Build {
         // the generation of the config sources, i.e. not available in the constructor.
         // javaDocumentation.addPackages("com.yahoo.test.json", "com.yahoo.test", "com.yahoo.vespa.test.file");
         List<String> packages = findPackages(buildContext);
-        arguments.addAll(packages);
 
-        buildContext.log().debug(() -> "javadoc " + String.join(" ", arguments));
+        buildContext.log().debug(() -> "javadoc " + String.join(" ", arguments) + " " + String.join(" ", packages));
 
-        Javadoc.Result result = javadoc.run(arguments);
+        // The documentation tool has no hooks to poll for cancellation while running.
+        buildContext.checkCancelled();
+        Javadoc.Result result = javadoc.run(arguments, packages);
 
         if (result.code() != 0) {
             throw new JavaDocumentationException(result.out());
@@ -1,10 +1,13 @@
 package no.ion.jake.javadoc;
 
+import no.ion.jake.jfr.ToolEvent;
+
 import javax.tools.DocumentationTool;
 import javax.tools.ToolProvider;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Javadoc {
@@ -30,9 +33,24 @@ public class Javadoc {
         public String out() { return out; }
     }
 
-    public Result run(List<String> arguments) {
+    /** Documents the packages or source files with the options. */
+    public Result run(List<String> options, List<String> packages) {
+        var arguments = new ArrayList<>(options);
+        arguments.addAll(packages);
+
         var outStream = new ByteArrayOutputStream();
+        var event = new ToolEvent();
+        event.begin();
         int code = javadoc.run(InputStream.nullInputStream(), outStream, outStream, arguments.toArray(String[]::new));
+        event.end();
+        if (event.shouldCommit()) {
+            event.tool = "javadoc";
+            event.arguments = options.size();
+            event.files = packages.size();
+            event.exitCode = code;
+            event.commit();
+        }
+
         return new Result(code, outStream.toString(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,64 @@
+package no.ion.jake.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+/** A decision by the scheduler whether the load and heap allow starting another CPU-bound build. */
+@Name("no.ion.jake.Admission")
+@Label("Build Admission")
+@Category({ "Jake", "Scheduler" })
+@Description("Whether the load and heap allowed starting the next build, or it was deferred")
+public class AdmissionEvent extends Event {
+    @Label("Build ID")
+    public String buildId;
+
+    @Label("Measured Load")
+    public float measuredLoad;
+
+    @Label("Artificial Load")
+    @Description("The load reserved for started builds, not yet part of the measured load")
+    public float artificialLoad;
+
+    @Label("Expected Load")
+    @Description("The expected load of the build")
+    public float expectedLoad;
+
+    @Label("Target Load")
+    public float targetLoad;
+
+    @Label("Live Heap")
+    @Description("The heap used after the latest garbage collection")
+    @DataAmount
+    public long liveHeap;
+
+    @Label("Reserved Heap")
+    @Description("The expected heap of builds started since the latest garbage collection")
+    @DataAmount
+    public long reservedHeap;
+
+    @Label("Expected Heap")
+    @Description("The expected contribution of the build to the live heap")
+    @DataAmount
+    public long expectedHeap;
+
+    @Label("Max Heap")
+    @DataAmount
+    public long maxHeap;
+
+    @Label("GC Pressure")
+    @Description("The fraction of the last few seconds spent in GC pauses")
+    @Percentage
+    public float gcPressure;
+
+    @Label("Deferred")
+    public boolean deferred;
+
+    @Label("Deferred By Heap")
+    @Description("Whether the build was deferred since it is memory-heavy and the heap is tight")
+    public boolean deferredByHeap;
+}
@@ -0,0 +1,31 @@
+package no.ion.jake.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The run of a build on a worker thread, from start to end.  Profiling samples of the thread within the event are
+ * attributable to the build.
+ */
+@Name("no.ion.jake.Build")
+@Label("Build")
+@Category({ "Jake", "Builds" })
+@Description("The run of a build, including the up-to-date check")
+public class BuildEvent extends Event {
+    @Label("Build ID")
+    public String buildId;
+
+    @Label("Module")
+    public String module;
+
+    @Label("Published Artifacts")
+    @Description("The names of the artifacts published by the build, separated by comma")
+    public String artifactsPublished;
+
+    @Label("Result")
+    @Description("built, up to date, failed or cancelled")
+    public String result;
+}
@@ -0,0 +1,23 @@
+package no.ion.jake.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** The download of an artifact from Maven Central.  The duration of the event is the latency. */
+@Name("no.ion.jake.MavenDownload")
+@Label("Maven Download")
+@Category({ "Jake", "Maven" })
+public class MavenDownloadEvent extends Event {
+    @Label("Coordinate")
+    public String coordinate;
+
+    @Label("Status Code")
+    public int statusCode;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
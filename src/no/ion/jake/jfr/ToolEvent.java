@@ -0,0 +1,28 @@
+package no.ion.jake.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** An invocation of a JDK tool like javac, javadoc or jar. */
+@Name("no.ion.jake.Tool")
+@Label("Tool Invocation")
+@Category({ "Jake", "Tools" })
+@Description("An invocation of javac, javadoc or jar")
+public class ToolEvent extends Event {
+    @Label("Tool")
+    public String tool;
+
+    @Label("Arguments")
+    @Description("The number of options and arguments, excluding the files")
+    public int arguments;
+
+    @Label("Files")
+    @Description("The number of source files compiled, packages documented, or entries archived")
+    public int files;
+
+    @Label("Exit Code")
+    public int exitCode;
+}
@@ -4,9 +4,12 @@ import no.ion.jake.AbortException;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
+import no.ion.jake.build.ModuleContext;
 import no.ion.jake.container.Container;
 import no.ion.jake.java.ClassPath;
 import no.ion.jake.java.ClassPathEntry;
+import no.ion.jake.java.JavaCompilerBuild;
 
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
@@ -44,6 +47,12 @@ public class JUnit4TestRun implements Build {
         return name;
     }
 
+    @Override
+    public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+        JavaCompilerBuild.addClassPathTo(fingerprint, classPathEntries);
+        return true;
+    }
+
     @Override
     public void build(BuildContext buildContext) {
         Path testClassesPath = testClassesArtifact.detail();
@@ -105,7 +114,6 @@ public class JUnit4TestRun implements Build {
                 testClassNames);
 
         if (!results.success()) {
-            // TODO: Handle this correctly with concurrent execution
             throw new AbortException(results.message());
         }
 
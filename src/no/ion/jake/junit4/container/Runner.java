@@ -1,10 +1,15 @@
 package no.ion.jake.junit4.container;
 
+import no.ion.jake.build.BuildCancelledException;
 import no.ion.jake.build.BuildContext;
 import no.ion.jake.junit4.JUnit4TestResults;
-import org.junit.runner.JUnitCore;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
 import org.junit.runner.Result;
 import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -28,11 +33,32 @@ public class Runner {
             return new JUnit4TestResults(true, TestRun.getSummaryForZeroTests());
         }
 
-        var junitCore = new JUnitCore();
-        TestRun testRun = new TestRun(buildContext);
-        junitCore.addListener(testRun);
+        // Equivalent to JUnitCore.run(), except with access to the RunNotifier to stop the run on cancellation.
         // TODO:  Pass a computer with a proper thread pool
-        Result result = junitCore.run(testClasses);
+        org.junit.runner.Runner runner = Request.classes(testClasses).getRunner();
+        var notifier = new RunNotifier();
+        var result = new Result();
+        notifier.addFirstListener(result.createListener());
+        TestRun testRun = new TestRun(buildContext);
+        notifier.addListener(testRun);
+        notifier.addListener(new RunListener() {
+            @Override
+            public void testFinished(Description description) {
+                if (buildContext.isCancelled()) {
+                    // Makes the next fireTestStarted() throw StoppedByUserException
+                    notifier.pleaseStop();
+                }
+            }
+        });
+
+        try {
+            notifier.fireTestRunStarted(runner.getDescription());
+            runner.run(notifier);
+            notifier.fireTestRunFinished(result);
+        } catch (StoppedByUserException e) {
+            throw new BuildCancelledException();
+        }
+
         testRun.setEndResult(result);
 
         return new JUnit4TestResults(testRun.wasSuccessful(), testRun.getSummary());
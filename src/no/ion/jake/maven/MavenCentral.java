@@ -1,6 +1,8 @@
 package no.ion.jake.maven;
 
 import no.ion.jake.JakeException;
+import no.ion.jake.jfr.MavenDownloadEvent;
+import no.ion.jake.util.HttpClients;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -18,10 +20,7 @@ public class MavenCentral {
     private final HttpClient client;
 
     public MavenCentral() {
-        this.client = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .followRedirects(HttpClient.Redirect.ALWAYS)
-                .build();
+        this.client = HttpClients.newBuilder().build();
     }
 
     /** Downloads Maven artifact to destinationPath.  Parent directories are created if necessary. */
@@ -38,8 +37,17 @@ public class MavenCentral {
 
         boolean exceptionThrown[] = { true };
         HttpResponse<Path> response;
+        var event = new MavenDownloadEvent();
+        event.begin();
         try {
             response = client.send(request, HttpResponse.BodyHandlers.ofFile(downloadPath));
+            event.end();
+            if (event.shouldCommit()) {
+                event.coordinate = mavenArtifactId.toCoordinate();
+                event.statusCode = response.statusCode();
+                event.bytes = uncheckIO(() -> Files.size(downloadPath));
+                event.commit();
+            }
             exceptionThrown[0] = false;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
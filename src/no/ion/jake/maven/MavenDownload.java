@@ -23,6 +23,9 @@ public class MavenDownload implements Build {
         return "downloading " + mavenArtifact.id().toCoordinate();
     }
 
+    @Override
+    public boolean ioBound() { return true; }
+
     public MavenArtifact mavenArtifact() {
         return mavenArtifact;
     }
@@ -4,12 +4,10 @@ import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Declarator;
 
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MavenRepository {
-    private final Object monitor = new Object();
-    private final Map<MavenArtifactId, MavenDownload> downloads = new HashMap<>();
+    private final ConcurrentHashMap<MavenArtifactId, MavenDownload> downloads = new ConcurrentHashMap<>();
 
     private final Path localRepo;
     private final MavenCentral mavenCentral;
@@ -21,21 +19,17 @@ public class MavenRepository {
 
     public Path localRepositoryPath() { return localRepo; }
 
+    /** Declares the download of the artifact, unless already declared, by this or any other module. */
     public MavenArtifact declareDownload(Declarator declarator, MavenArtifactId mavenArtifactId) {
-        synchronized (monitor) {
-            MavenDownload download = downloads.get(mavenArtifactId);
-            if (download != null) {
-                return download.mavenArtifact();
-            }
-
-            try (var declaration = declarator.declareNewBuild("maven")) {
-                Artifact<Path> artifact = declaration.producesArtifact(Path.class, mavenArtifactId.toCoordinate());
-                MavenDownload mavenDownload = new MavenDownload(mavenCentral, localRepo, mavenArtifactId, artifact);
-                declaration.forBuild(mavenDownload);
-                downloads.put(mavenArtifactId, mavenDownload);
-                return mavenDownload.mavenArtifact();
-            }
-        }
+        return downloads.computeIfAbsent(mavenArtifactId, id -> declareNewDownload(declarator, id)).mavenArtifact();
+    }
 
+    private MavenDownload declareNewDownload(Declarator declarator, MavenArtifactId mavenArtifactId) {
+        try (var declaration = declarator.declareNewBuild("maven")) {
+            Artifact<Path> artifact = declaration.producesArtifact(Path.class, mavenArtifactId.toCoordinate());
+            MavenDownload mavenDownload = new MavenDownload(mavenCentral, localRepo, mavenArtifactId, artifact);
+            declaration.forBuild(mavenDownload);
+            return mavenDownload;
+        }
     }
 }
@@ -0,0 +1,15 @@
+package no.ion.jake.util;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/** The common setup of the HTTP clients used by jake. */
+public class HttpClients {
+    private HttpClients() {}
+
+    public static HttpClient.Builder newBuilder() {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.ALWAYS);
+    }
+}
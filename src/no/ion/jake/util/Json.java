@@ -0,0 +1,28 @@
+package no.ion.jake.util;
+
+import java.util.Locale;
+
+/** Helpers for writing JSON by hand, for the few files jake writes in JSON. */
+public class Json {
+    /** Appends the string as a quoted and escaped JSON string. */
+    public static StringBuilder appendString(StringBuilder builder, String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); ++i) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"');
+    }
+}
@@ -0,0 +1,157 @@
+package no.ion.jake.vespa;
+
+import no.ion.jake.engine.CancellationToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Locale;
+import java.util.Set;
+
+import static no.ion.jake.util.Exceptions.uncheckIO;
+
+/**
+ * A long-running JVM serving builds over a Unix domain socket, letting builds skip the startup of the JVM, and run
+ * with loaded tools and JIT-compiled code.  Builds are run one at a time, and a build is cancelled if its client
+ * disconnects.  Anyone able to connect can run builds as the user, so the socket must be in a directory only
+ * accessible by the user.
+ *
+ * <p>A request consists of the number of arguments, the working directory of the client, and the arguments, each
+ * terminated by NUL.  The response is the output of the build, followed by a line with {@link #EXIT_STATUS_PREFIX}
+ * and the exit status.  See {@link DaemonClient}.</p>
+ */
+class Daemon {
+    /**
+     * Starts the last line of the response.  A build could output a line starting with it too, so the client takes
+     * only the last line of the response as the exit status.
+     */
+    static final String EXIT_STATUS_PREFIX = "\u001Eexit ";
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    static Path defaultSocketPath() {
+        return Path.of(System.getProperty("user.home"), ".cache/jake/daemon.sock");
+    }
+
+    /** Serves builds until the JVM is terminated. */
+    static void listen(Path socketPath, Session session) {
+        makePrivate(socketPath.toAbsolutePath().getParent());
+        if (Files.exists(socketPath)) {
+            if (DaemonClient.isListening(socketPath)) {
+                throw new UserError("a daemon is already listening on " + socketPath);
+            }
+            uncheckIO(() -> Files.delete(socketPath));
+        }
+
+        PrintStream log = System.out;
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> uncheckIO(() -> Files.deleteIfExists(socketPath))));
+            log.println("jake daemon listening on " + socketPath);
+
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    serve(client, session, log);
+                } catch (IOException | RuntimeException e) {
+                    log.println("failed to serve client: " + e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the directory accessible only by the user, or makes the default directory so.  Any other existing
+     * directory, e.g. $XDG_RUNTIME_DIR, must already be.
+     */
+    private static void makePrivate(Path directory) {
+        if (!Files.exists(directory)) {
+            uncheckIO(() -> Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY)));
+            // The permissions of the attribute are masked by the umask.
+            uncheckIO(() -> Files.setPosixFilePermissions(directory, OWNER_ONLY));
+        } else if (directory.equals(defaultSocketPath().getParent())) {
+            uncheckIO(() -> Files.setPosixFilePermissions(directory, OWNER_ONLY));
+        } else if (!OWNER_ONLY.containsAll(uncheckIO(() -> Files.getPosixFilePermissions(directory)))) {
+            throw new UserError("the directory of the daemon socket must only be accessible by its owner: " + directory);
+        }
+    }
+
+    private static void serve(SocketChannel client, Session session, PrintStream log) throws IOException {
+        InputStream in = Channels.newInputStream(client);
+        int argumentCount = Integer.parseInt(readField(in));
+        Path workingDirectory = Path.of(readField(in));
+        String[] args = new String[argumentCount];
+        for (int i = 0; i < argumentCount; ++i) {
+            args[i] = readField(in);
+        }
+
+        // The next build waits for this one, so stop it once the client is gone.
+        var cancellationToken = new CancellationToken();
+        var out = new PrintStream(new CancellingOutputStream(Channels.newOutputStream(client), cancellationToken),
+                true, StandardCharsets.UTF_8);
+        long startNanos = System.nanoTime();
+        int status = Main.runInDaemon(args, workingDirectory, session, out, cancellationToken);
+        out.println(EXIT_STATUS_PREFIX + status);
+        out.flush();
+
+        log.println(String.format(Locale.ROOT, "built %s with exit status %d in %.3f s%s", workingDirectory, status,
+                (System.nanoTime() - startNanos) / 1e9,
+                cancellationToken.isCancelled() ? ", cancelled since the client disconnected" : ""));
+    }
+
+    /** Cancels the build when a write fails, i.e. when the client has disconnected. */
+    private static class CancellingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final CancellationToken cancellationToken;
+
+        CancellingOutputStream(OutputStream out, CancellationToken cancellationToken) {
+            this.out = out;
+            this.cancellationToken = cancellationToken;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                out.write(bytes, offset, length);
+            } catch (IOException e) {
+                cancellationToken.cancel();
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static String readField(InputStream in) throws IOException {
+        var field = new ByteArrayOutputStream();
+        for (int b = in.read(); b != 0; b = in.read()) {
+            if (b == -1) {
+                throw new EOFException("unexpected end of request");
+            }
+            field.write(b);
+        }
+        return field.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package no.ion.jake.vespa;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Runs a build in the {@link Daemon} listening on a Unix domain socket, prints its output, and exits with its status.
+ * It loads few classes, so the JVM starts quickly.
+ *
+ * <p>Usage: DaemonClient SOCKET [ARG...]</p>
+ */
+public class DaemonClient {
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("usage: DaemonClient SOCKET [ARG...]");
+            System.exit(1);
+        }
+
+        Path socketPath = Path.of(args[0]);
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            System.err.println("no jake daemon is listening on " + socketPath + ": remove it, or start the daemon " +
+                    "with 'jake --daemon'");
+            System.exit(1);
+            return;
+        }
+
+        try (channel) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writeField(out, Integer.toString(args.length - 1));
+            writeField(out, Path.of("").toAbsolutePath().toString());
+            for (int i = 1; i < args.length; ++i) {
+                writeField(out, args[i]);
+            }
+            out.flush();
+
+            var reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            // The exit status is the last line, so a line is printed only when the next has been read.
+            String previousLine = null;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (previousLine != null) {
+                    System.out.println(previousLine);
+                }
+                previousLine = line;
+            }
+            if (previousLine != null && previousLine.matches(Daemon.EXIT_STATUS_PREFIX + "[0-9]+")) {
+                System.out.flush();
+                System.exit(Integer.parseInt(previousLine.substring(Daemon.EXIT_STATUS_PREFIX.length())));
+            } else if (previousLine != null) {
+                System.out.println(previousLine);
+            }
+        } catch (IOException e) {
+            System.err.println("lost connection to the jake daemon: " + e.getMessage());
+            System.exit(1);
+        }
+
+        System.err.println("the jake daemon closed the connection before the build completed");
+        System.exit(1);
+    }
+
+    static boolean isListening(Path socketPath) {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            return channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void writeField(OutputStream out, String field) throws IOException {
+        out.write(field.getBytes(StandardCharsets.UTF_8));
+        out.write(0);
+    }
+}
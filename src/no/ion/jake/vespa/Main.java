@@ -5,13 +5,16 @@ import no.ion.jake.LogSink;
 import no.ion.jake.Project;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.ModuleContext;
+import no.ion.jake.engine.BuildHistory;
 import no.ion.jake.engine.BuildSet;
-import no.ion.jake.engine.DeclaratorImpl;
-import no.ion.jake.engine.JakeExecutor;
+import no.ion.jake.engine.CancellationToken;
+import no.ion.jake.engine.EngineOptions;
+import no.ion.jake.engine.ModuleDeclarations;
+import no.ion.jake.engine.cache.ActionCache;
+import no.ion.jake.io.DirectoryWatcher;
 import no.ion.jake.java.Jar;
 import no.ion.jake.java.Javac;
 import no.ion.jake.javadoc.Javadoc;
-import no.ion.jake.maven.MavenCentral;
 import no.ion.jake.maven.MavenRepository;
 
 import java.io.InputStream;
@@ -19,11 +22,19 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class Main {
+    private static final Duration WATCH_QUIET_PERIOD = Duration.ofMillis(200);
+
     private final Project project;
     private final Options options;
+    private final Session session;
+    private final CancellationToken cancellationToken;
 
     public static void main(String[] args) {
         try {
@@ -39,14 +50,66 @@ public class Main {
     }
 
     private static int main2(String[] args) {
+        Options options = parseArguments(args, Path.of("").toAbsolutePath());
+        if (options.mode() == Options.Mode.DAEMON) {
+            Daemon.listen(options.daemonSocketPath(), new Session());
+            return 0;
+        }
+
+        Project project = new Project(options.projectPath(), options.jarPath());
+        return new Main(project, options, new Session(), new CancellationToken()).run(System.out);
+    }
+
+    /**
+     * Runs a build requested by a client of the daemon, and returns the exit status.  The build stops early if the
+     * cancellation token is cancelled.
+     */
+    static int runInDaemon(String[] args, Path workingDirectory, Session session, PrintStream out,
+                           CancellationToken cancellationToken) {
+        try {
+            Options options = parseArguments(args, workingDirectory);
+            if (options.mode() == Options.Mode.DAEMON) {
+                throw new UserError("the daemon is already running");
+            } else if (options.watch()) {
+                throw new UserError("--watch cannot be run by the daemon");
+            }
+
+            Project project = new Project(options.projectPath(), options.jarPath());
+            return new Main(project, options, session, cancellationToken).run(out);
+        } catch (UserError userError) {
+            out.println(userError.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            e.printStackTrace(out);
+            return 1;
+        }
+    }
+
+    private static Options parseArguments(String[] args, Path workingDirectory) {
         Options options = new Options();
+        options.setWorkingDirectory(workingDirectory);
 
         for (int i = 0; i < args.length; ++i) {
             String arg = args[i];
             switch (arg) {
+                case "--build-metrics":
+                    options.setReportBuildMetrics(true);
+                    continue;
+                case "--build-metrics-json":
+                    options.setBuildMetricsPath(Path.of(args[++i]));
+                    continue;
+                case "--cache-size":
+                    options.setActionCacheGigabytes(Float.parseFloat(args[++i]));
+                    continue;
                 case "--jar":
                     options.setJarPath(Path.of(args[++i]));
                     continue;
+                case "--daemon":
+                    options.setMode(Options.Mode.DAEMON);
+                    continue;
+                case "--daemon-socket":
+                    options.setDaemonSocketPath(Path.of(args[++i]));
+                    continue;
                 case "--dep-graph":
                     options.setDotPath(Path.of(args[++i]));
                     options.setMode(Options.Mode.GRAPHVIZ);
@@ -54,10 +117,37 @@ public class Main {
                 case "--dot":
                     options.setDotPath(Path.of(args[++i]));
                     continue;
+                case "-k":
+                case "--keep-going":
+                    options.setKeepGoing(true);
+                    continue;
+                case "--no-cache":
+                    options.setActionCache(false);
+                    continue;
                 case "-p":
                 case "--project":
                     options.setProjectPath(Path.of(args[++i]));
                     continue;
+                case "-B":
+                case "--rebuild":
+                    options.setRebuild(true);
+                    continue;
+                case "--remote-cache":
+                    options.setRemoteCacheUri(args[++i]);
+                    continue;
+                case "--schedule":
+                    options.setSchedulingPolicy(args[++i]);
+                    continue;
+                case "--schedule-report":
+                    options.setReportSchedule(true);
+                    continue;
+                case "--scheduler-stats":
+                    options.setReportSchedulerStats(true);
+                    continue;
+                case "--simulate":
+                    options.setSimulatedCores(args[++i]);
+                    options.setMode(Options.Mode.SIMULATE);
+                    continue;
                 case "-T":
                 case "--threads":
                     arg = args[++i];
@@ -70,6 +160,13 @@ public class Main {
                         throw new UserError("negative #threads specified");
                     }
                     continue;
+                case "--trace":
+                    options.setTracePath(Path.of(args[++i]));
+                    continue;
+                case "-w":
+                case "--watch":
+                    options.setWatch(true);
+                    continue;
                 case "--time":
                     options.setLogTime(true);
                     continue;
@@ -82,23 +179,23 @@ public class Main {
             if (arg.startsWith("-")) {
                 throw new UserError("unknown option: " + arg);
             } else {
-                throw new UserError("extraneous argument: " + arg);
+                options.addTarget(arg);
             }
         }
 
         options.validateAndNormalize();
-        Project project = new Project(options.projectPath(), options.jarPath());
-
-        return new Main(project, options).run();
+        return options;
     }
 
-    private Main(Project project, Options options) {
+    private Main(Project project, Options options, Session session, CancellationToken cancellationToken) {
         this.project = project;
         this.options = options;
+        this.session = session;
+        this.cancellationToken = cancellationToken;
     }
 
-    private int run() {
-        LogSink logSink = new PrintStreamLogSink(System.out, options.verbose() ? Level.FINEST : Level.INFO, options.logTime());
+    private int run(PrintStream out) {
+        LogSink logSink = new PrintStreamLogSink(out, options.verbose() ? Level.FINEST : Level.INFO, options.logTime());
 
         // Our program would like to print progress to System.out and never write to err.
         // Unfortunately, tests may print to out/err, and the JVM may print e.g. "WARNING: An illegal reflective
@@ -112,14 +209,17 @@ public class Main {
         PrintStream originalOut = System.out;
         StdoutStream stdoutStream = new StdoutStream(logSink, Level.FINER, StandardCharsets.UTF_8);
         PrintStream newOut = new PrintStream(stdoutStream);
-        System.err.close();
+        if (System.err != originalOut) {
+            // Otherwise err was closed by an earlier run in the daemon
+            System.err.close();
+        }
         System.setOut(newOut);
         System.setErr(newOut);
         System.setIn(InputStream.nullInputStream());
 
         try {
             return runWithOutAndErrRedirected(logSink);
-        } catch (AbortException e) {
+        } catch (AbortException | no.ion.jake.UserError e) {
             if (!e.getMessage().isEmpty()) {
                 logSink.log(Level.SEVERE, e.getMessage(), null);
             }
@@ -134,52 +234,106 @@ public class Main {
     }
 
     private int runWithOutAndErrRedirected(LogSink logSink) {
-        Javac javac = new Javac();
-        Jar jar = new Jar();
-        Javadoc javadoc = new Javadoc();
-        MavenCentral mavenCentral = new MavenCentral();
-        MavenRepository mavenRepository = new MavenRepository(project.pathToMavenRepository(), mavenCentral);
-        var executor = new JakeExecutor(options.threads());
-        var buildSet = new BuildSet(executor, logSink);
-
-        final TestutilModule testutilModule;
-        {
-            var testutilContext2 = new ModuleContext(project, project.path().resolve("testutil").normalize());
-            testutilModule = new TestutilModule(testutilContext2, mavenRepository, javac, jar, javadoc);
-            var testutilConstruction = new DeclaratorImpl(buildSet, testutilContext2, testutilModule);
-            testutilModule.declareBuilds(testutilConstruction);
-        }
-
-        final YoleanModule yoleanModule;
-        {
-            var yoleanContext2 = new ModuleContext(project, project.path().resolve("yolean").normalize());
-            yoleanModule = new YoleanModule(yoleanContext2, mavenRepository, javac, jar, javadoc);
-            var yoleanConstruction = new DeclaratorImpl(buildSet, yoleanContext2, yoleanModule);
-            yoleanModule.declareBuilds(yoleanConstruction);
-        }
-
-        final VespajlibModule vespajlibModule;
-        {
-            var vespajlibContext2 = new ModuleContext(project, project.path().resolve("vespajlib").normalize());
-            vespajlibModule = new VespajlibModule(vespajlibContext2, mavenRepository, javac, jar, javadoc,
-                    testutilModule, yoleanModule);
-            var vespajlibConstruction = new DeclaratorImpl(buildSet, vespajlibContext2, vespajlibModule);
-            vespajlibModule.declareBuilds(vespajlibConstruction);
-        }
-
+        BuildSet buildSet = declareBuilds(logSink);
         switch (options.mode()) {
             case BUILD:
-                buildSet.buildEverything();
-                logSink.log(Level.INFO, "SUCCESS", null);
+                if (options.watch()) {
+                    watch(logSink, buildSet);
+                } else {
+                    buildSet.build(options.targetPattern());
+                    logSink.log(Level.INFO, "SUCCESS", null);
+                }
                 break;
             case GRAPHVIZ:
                 buildSet.printGraphviz(options.dotPath());
                 break;
+            case SIMULATE:
+                buildSet.simulate(options.targetPattern(), options.simulatedCores());
+                break;
         }
 
         return 0;
     }
 
+    /**
+     * Builds, and rebuilds whenever a source file changes, until the JVM is terminated.  The builds are declared once,
+     * and only the builds watching the changed source files and the builds depending on them are run.
+     */
+    private void watch(LogSink logSink, BuildSet buildSet) {
+        try (var watcher = new DirectoryWatcher()) {
+            Set<Path> changes = null;
+            while (true) {
+                // Watch before building, so changes made while building trigger a new build.
+                watcher.watch(buildSet.watchedDirectories());
+
+                try {
+                    if (changes == null) {
+                        buildSet.build(options.targetPattern());
+                    } else {
+                        buildSet.rebuild(options.targetPattern(), changes);
+                    }
+                    logSink.log(Level.INFO, "SUCCESS", null);
+                } catch (AbortException | no.ion.jake.UserError e) {
+                    if (!e.getMessage().isEmpty()) {
+                        logSink.log(Level.SEVERE, e.getMessage(), null);
+                    }
+                } catch (RuntimeException e) {
+                    // The failure of the first failed build, e.g. a compilation error, which the next change may fix
+                    logSink.log(Level.SEVERE, null, e);
+                }
+
+                logSink.log(Level.INFO, "watching " + watcher.size() + " directories for changes", null);
+                changes = watcher.awaitChanges(WATCH_QUIET_PERIOD);
+                logSink.log(Level.INFO, changes.size() + " file" + (changes.size() == 1 ? "" : "s") + " changed", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BuildSet declareBuilds(LogSink logSink) {
+        Javac javac = session.javac();
+        Jar jar = session.jar();
+        Javadoc javadoc = session.javadoc();
+        MavenRepository mavenRepository = new MavenRepository(project.pathToMavenRepository(), session.mavenCentral());
+        var executor = session.executorFor(options.threads());
+        var buildHistory = BuildHistory.load(project.pathToBuildHistory());
+        var engineOptions = new EngineOptions();
+        engineOptions.setKeepGoing(options.keepGoing());
+        engineOptions.setRebuild(options.rebuild());
+        engineOptions.setReportSchedule(options.reportSchedule());
+        engineOptions.setReportSchedulerStats(options.reportSchedulerStats());
+        engineOptions.setTracePath(options.tracePath());
+        engineOptions.setReportBuildMetrics(options.reportBuildMetrics());
+        engineOptions.setSchedulingPolicy(options.schedulingPolicy());
+        engineOptions.setBuildMetricsPath(options.buildMetricsPath());
+        engineOptions.setCancellationToken(cancellationToken);
+        var fileDigests = session.fileDigestsOf(project);
+        var actionCache = options.actionCache() ?
+                ActionCache.open(project.pathToActionCache(), options.actionCacheBytes()) :
+                ActionCache.disabled();
+        if (options.remoteCacheUri() != null) {
+            actionCache.setRemoteCache(session.remoteCacheFor(options.remoteCacheUri()));
+        }
+        var buildSet = new BuildSet(executor, logSink, buildHistory, fileDigests, actionCache, engineOptions);
+
+        var moduleDeclarations = new ModuleDeclarations(buildSet);
+        CompletableFuture<TestutilModule> testutilModule = moduleDeclarations.declare(moduleContext("testutil"), List.of(),
+                context -> new TestutilModule(context, mavenRepository, javac, jar, javadoc));
+        CompletableFuture<YoleanModule> yoleanModule = moduleDeclarations.declare(moduleContext("yolean"), List.of(),
+                context -> new YoleanModule(context, mavenRepository, javac, jar, javadoc));
+        moduleDeclarations.declare(moduleContext("vespajlib"), List.of(testutilModule, yoleanModule),
+                context -> new VespajlibModule(context, mavenRepository, javac, jar, javadoc,
+                        testutilModule.join(), yoleanModule.join()));
+        moduleDeclarations.awaitAll();
+
+        return buildSet;
+    }
+
+    private ModuleContext moduleContext(String moduleDirectory) {
+        return new ModuleContext(project, project.path().resolve(moduleDirectory).normalize());
+    }
+
     private void setOutAndCloseErr(LogSink logSink) {
         StdoutStream stdoutStream = new StdoutStream(logSink, Level.FINER, StandardCharsets.UTF_8);
         PrintStream newStdout = new PrintStream(stdoutStream);
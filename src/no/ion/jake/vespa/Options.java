@@ -1,20 +1,62 @@
 package no.ion.jake.vespa;
 
+import no.ion.jake.build.TargetPattern;
+import no.ion.jake.engine.load.CgroupCpuQuota;
+import no.ion.jake.graph.SchedulingPolicy;
+
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class Options {
+    private boolean actionCache = true;
+    private float actionCacheGigabytes = 5f;
+    private Path daemonSocketPath = Daemon.defaultSocketPath();
+    private Path buildMetricsPath = null;
     private Path dotPath = null;
     private Path jarPath = null;
+    private boolean keepGoing = false;
     private boolean logTime = false;
     private Mode mode = Mode.BUILD;
     private final int processorCount = Runtime.getRuntime().availableProcessors();
     private Path projectPath = Path.of(".");
-    private float threads = processorCount;
+    private boolean rebuild = false;
+    private boolean reportBuildMetrics = false;
+    private URI remoteCacheUri = null;
+    private boolean reportSchedule = false;
+    private boolean reportSchedulerStats = false;
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.CRITICAL_PATH;
+    private List<Float> simulatedCores = List.of();
+    private final List<String> targets = new ArrayList<>();
+    private Path tracePath = null;
+    // A container's CPU limit may be a fraction of the processors made available to it.
+    private float threads = CgroupCpuQuota.cpus().map(cpus -> Math.min(cpus, processorCount)).orElse((float) processorCount);
     private boolean verbose = false;
+    private boolean watch = false;
+    private TargetPattern targetPattern = TargetPattern.everything();
+    private Path workingDirectory = Path.of("").toAbsolutePath();
+
+    public enum Mode { BUILD, DAEMON, GRAPHVIZ, SIMULATE }
+    public void setActionCache(boolean actionCache) {
+        this.actionCache = actionCache;
+    }
+
+    public void setActionCacheGigabytes(float actionCacheGigabytes) {
+        this.actionCacheGigabytes = actionCacheGigabytes;
+    }
+
+    public void setBuildMetricsPath(Path buildMetricsPath) {
+        this.buildMetricsPath = Objects.requireNonNull(buildMetricsPath);
+    }
+
+    public void setDaemonSocketPath(Path daemonSocketPath) {
+        this.daemonSocketPath = daemonSocketPath;
+    }
 
-    public enum Mode { BUILD, GRAPHVIZ }
     public void setDotPath(Path dotPath) {
         this.dotPath = Objects.requireNonNull(dotPath);
     }
@@ -32,6 +74,50 @@ public class Options {
         this.projectPath = projectPath;
     }
 
+    public void setReportBuildMetrics(boolean reportBuildMetrics) {
+        this.reportBuildMetrics = reportBuildMetrics;
+    }
+
+    public void setReportSchedule(boolean reportSchedule) {
+        this.reportSchedule = reportSchedule;
+    }
+
+    public void setReportSchedulerStats(boolean reportSchedulerStats) {
+        this.reportSchedulerStats = reportSchedulerStats;
+    }
+
+    public void setSchedulingPolicy(String policyName) {
+        try {
+            this.schedulingPolicy = SchedulingPolicy.fromPolicyName(policyName);
+        } catch (IllegalArgumentException e) {
+            throw new UserError(e.getMessage());
+        }
+    }
+
+    /** Sets the comma-separated core counts to simulate building on, e.g. "16,32,64". */
+    public void setSimulatedCores(String coreCounts) {
+        var cores = new ArrayList<Float>();
+        for (String count : coreCounts.split(",", -1)) {
+            try {
+                cores.add(Float.parseFloat(count));
+            } catch (NumberFormatException e) {
+                throw new UserError("invalid core count for --simulate: '" + count + "'");
+            }
+            if (cores.get(cores.size() - 1) < 1f) {
+                throw new UserError("core count for --simulate must be at least 1: " + count);
+            }
+        }
+        this.simulatedCores = List.copyOf(cores);
+    }
+
+    public void addTarget(String target) {
+        targets.add(target);
+    }
+
+    public void setTracePath(Path tracePath) {
+        this.tracePath = Objects.requireNonNull(tracePath);
+    }
+
     public void setThreadsPerHardwareThread(float threadsPerHardwareThread) {
         this.threads = threadsPerHardwareThread * processorCount;
     }
@@ -40,6 +126,22 @@ public class Options {
         this.threads = threads;
     }
 
+    public void setKeepGoing(boolean keepGoing) {
+        this.keepGoing = keepGoing;
+    }
+
+    public void setRebuild(boolean rebuild) {
+        this.rebuild = rebuild;
+    }
+
+    public void setRemoteCacheUri(String remoteCacheUri) {
+        try {
+            this.remoteCacheUri = new URI(remoteCacheUri);
+        } catch (URISyntaxException e) {
+            throw new UserError("invalid --remote-cache URL: " + remoteCacheUri);
+        }
+    }
+
     public void setLogTime(boolean logTime) {
         this.logTime = logTime;
     }
@@ -48,7 +150,23 @@ public class Options {
         this.verbose = verbose;
     }
 
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    /** The directory relative paths are resolved against, which for the daemon is that of the client. */
+    public void setWorkingDirectory(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
     public void validateAndNormalize() {
+        jarPath = jarPath == null ? null : workingDirectory.resolve(jarPath);
+        dotPath = dotPath == null ? null : workingDirectory.resolve(dotPath);
+        tracePath = tracePath == null ? null : workingDirectory.resolve(tracePath);
+        buildMetricsPath = buildMetricsPath == null ? null : workingDirectory.resolve(buildMetricsPath);
+        daemonSocketPath = workingDirectory.resolve(daemonSocketPath);
+        projectPath = workingDirectory.resolve(projectPath);
+
         if (jarPath == null) {
             throw new UserError("missing --jar");
         } else if (!jarPath.toString().endsWith(".jar")) {
@@ -57,26 +175,70 @@ public class Options {
             throw new UserError("no such file: " + jarPath);
         }
 
+        if (remoteCacheUri != null) {
+            if (!"http".equals(remoteCacheUri.getScheme()) && !"https".equals(remoteCacheUri.getScheme())) {
+                throw new UserError("--remote-cache URL is not http or https: " + remoteCacheUri);
+            } else if (!actionCache) {
+                throw new UserError("--remote-cache cannot be used with --no-cache");
+            }
+        }
+
         if (dotPath != null) {
             if (!Files.isDirectory(dotPath.getParent())) {
                 throw new UserError("parent directory of dot file does not exist: " + dotPath);
             }
         }
 
+        if (tracePath != null) {
+            if (!Files.isDirectory(tracePath.getParent())) {
+                throw new UserError("parent directory of trace file does not exist: " + tracePath);
+            }
+        }
+
+        if (buildMetricsPath != null) {
+            if (!Files.isDirectory(buildMetricsPath.getParent())) {
+                throw new UserError("parent directory of build metrics file does not exist: " + buildMetricsPath);
+            }
+        }
+
+        try {
+            targetPattern = TargetPattern.of(targets);
+        } catch (IllegalArgumentException e) {
+            throw new UserError(e.getMessage());
+        }
+
+        if (watch && mode != Mode.BUILD) {
+            throw new UserError("--watch can only be used when building");
+        }
+
         threads = Math.max(1f, threads);
 
         if (!Files.isDirectory(projectPath)) {
             throw new UserError("no such directory: " + projectPath);
         }
-        projectPath = projectPath.toAbsolutePath();
     }
 
+    public Path buildMetricsPath() { return buildMetricsPath; }
+    public Path daemonSocketPath() { return daemonSocketPath; }
     public Path dotPath() { return dotPath; }
     public Path jarPath() { return jarPath; }
+    public boolean actionCache() { return actionCache; }
+    public long actionCacheBytes() { return (long) (actionCacheGigabytes * 1e9); }
+    public boolean keepGoing() { return keepGoing; }
+    public boolean rebuild() { return rebuild; }
+    public URI remoteCacheUri() { return remoteCacheUri; }
     public boolean logTime() { return logTime; }
     public Mode mode() { return mode; }
     public int processorCount() { return processorCount; }
     public Path projectPath() { return projectPath; }
+    public boolean reportBuildMetrics() { return reportBuildMetrics; }
+    public boolean reportSchedule() { return reportSchedule; }
+    public boolean reportSchedulerStats() { return reportSchedulerStats; }
+    public SchedulingPolicy schedulingPolicy() { return schedulingPolicy; }
+    public List<Float> simulatedCores() { return simulatedCores; }
+    public TargetPattern targetPattern() { return targetPattern; }
     public float threads() { return threads; }
+    public Path tracePath() { return tracePath; }
     public boolean verbose() { return verbose; }
+    public boolean watch() { return watch; }
 }
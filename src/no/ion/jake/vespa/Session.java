@@ -0,0 +1,50 @@
+package no.ion.jake.vespa;
+
+import no.ion.jake.Project;
+import no.ion.jake.engine.JakeExecutor;
+import no.ion.jake.engine.cache.RemoteCache;
+import no.ion.jake.io.FileDigests;
+import no.ion.jake.java.Jar;
+import no.ion.jake.java.Javac;
+import no.ion.jake.javadoc.Javadoc;
+import no.ion.jake.maven.MavenCentral;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The tools and caches reused by all builds run by this JVM, which is more than one with the {@link Daemon}.
+ * Builds are declared anew for each run, since artifacts hold the state of the builds of a run, except that
+ * {@code --watch} keeps its builds to rerun only those affected by a change.
+ */
+class Session {
+    private final Javac javac = new Javac();
+    private final Jar jar = new Jar();
+    private final Javadoc javadoc = new Javadoc();
+    private final MavenCentral mavenCentral = new MavenCentral();
+    private final Map<Path, FileDigests> fileDigests = new HashMap<>();
+    private final Map<Float, JakeExecutor> executors = new HashMap<>();
+    private final Map<URI, RemoteCache> remoteCaches = new HashMap<>();
+
+    Javac javac() { return javac; }
+    Jar jar() { return jar; }
+    Javadoc javadoc() { return javadoc; }
+    MavenCentral mavenCentral() { return mavenCentral; }
+
+    /** An executor with the target load, whose threads are reused by later builds. */
+    synchronized JakeExecutor executorFor(float targetLoad) {
+        return executors.computeIfAbsent(targetLoad, JakeExecutor::new);
+    }
+
+    /** The file digests of the project, kept in memory between builds and saved by each. */
+    synchronized FileDigests fileDigestsOf(Project project) {
+        return fileDigests.computeIfAbsent(project.path(), path -> FileDigests.load(project.pathToFileDigests()));
+    }
+
+    /** The remote cache at the URI, whose HTTP connections and upload threads are reused by later builds. */
+    synchronized RemoteCache remoteCacheFor(URI uri) {
+        return remoteCaches.computeIfAbsent(uri, RemoteCache::new);
+    }
+}
@@ -169,5 +169,13 @@ public class TestutilModule implements JavaModule {
         MavenArtifact pomMavenArtifact = artifactInstaller.install(Path.of("pom.xml"), mavenArtifactId.withPackaging("pom"));
         MavenArtifact sourceJarMavenArtifact = artifactInstaller.install(sourceJarArtifact, mavenArtifactId.withClassifier("sources"));
         MavenArtifact javadocMavenArtifact = artifactInstaller.install(javadocJarArtifact, mavenArtifactId.withClassifier("javadoc"));
+
+        declarator.declareTarget("compile", classesArtifact);
+        declarator.declareTarget("test-compile", testClassesArtifact);
+        declarator.declareTarget("test", testArtifact);
+        declarator.declareTarget("jar", jarArtifact);
+        declarator.declareTarget("javadoc", javadocJarArtifact);
+        Stream.of(mavenArtifact, pomMavenArtifact, sourceJarMavenArtifact, javadocMavenArtifact)
+                .forEach(installed -> declarator.declareTarget("install", installed.pathArtifact()));
     }
 }
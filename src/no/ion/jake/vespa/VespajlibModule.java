@@ -88,6 +88,13 @@ public class VespajlibModule implements JavaModule {
                 .map(MavenArtifactId::fromCoordinate)
                 .map(mavenArtifact -> mavenRepository.declareDownload(declarator, mavenArtifact))
                 .collect(Collectors.toCollection(ArrayList::new));
+
+        // The compilations need only the ABI of yolean, and can start as soon as its header compilation is done,
+        // instead of waiting for yolean to be compiled, tested and installed.
+        List<ClassPathEntry> providedCompileClassPath = providedMavenArtifacts.stream()
+                .map(ClassPathEntry::fromMavenArtifact)
+                .collect(Collectors.toCollection(ArrayList::new));
+        providedCompileClassPath.add(ClassPathEntry.fromExplodedJarArtifact(yoleanModule.headerClassesArtifact()));
         providedMavenArtifacts.add(yoleanModule.mavenArtifact());
 
         List<MavenArtifact> compileMavenArtifacts = Stream.of(
@@ -116,7 +123,7 @@ public class VespajlibModule implements JavaModule {
 
         Artifact<Path> classesArtifact = new JavaCompiler(javac, null)
                 .addSourceFilesArtifact(sourceArtifacts.javaFilesArtifact())
-                .addClassPathEntries(providedMavenArtifacts.stream().map(ClassPathEntry::fromMavenArtifact).collect(Collectors.toList()))
+                .addClassPathEntries(providedCompileClassPath)
                 .addClassPathEntries(compileMavenArtifacts.stream().map(ClassPathEntry::fromMavenArtifact).collect(Collectors.toList()))
                 .addJavacArguments(List.of(
                         "-O", "-g", "-target", "11", "-source", "11", "-encoding", "UTF-8",
@@ -131,7 +138,7 @@ public class VespajlibModule implements JavaModule {
 
         Artifact<Path> testClassesArtifact = new JavaCompiler(javac, "test")
                 .addSourceFilesArtifact(testSourceArtifact)
-                .addClassPathEntries(providedMavenArtifacts.stream().map(ClassPathEntry::fromMavenArtifact).collect(Collectors.toList()))
+                .addClassPathEntries(providedCompileClassPath)
                 .addClassPathEntries(compileMavenArtifacts.stream().map(ClassPathEntry::fromMavenArtifact).collect(Collectors.toList()))
                 .addClassPathEntries(testMavenArtifacts.stream().map(ClassPathEntry::fromMavenArtifact).collect(Collectors.toList()))
                 .addClassPathEntry(ClassPathEntry.fromExplodedJarArtifact(classesArtifact))
@@ -203,5 +210,13 @@ public class VespajlibModule implements JavaModule {
         MavenArtifact sourceJarMavenArtifact = artifactInstaller.install(sourceJarArtifact, mavenArtifactId.withClassifier("sources"));
         MavenArtifact javadocMavenArtifact = artifactInstaller.install(javadocJarArtifact, mavenArtifactId.withClassifier("javadoc"));
 
+        declarator.declareTarget("compile", classesArtifact);
+        declarator.declareTarget("test-compile", testClassesArtifact);
+        declarator.declareTarget("test", testArtifact);
+        declarator.declareTarget("jar", assemblerOutput.jarArtifact());
+        declarator.declareTarget("javadoc", javadocJarArtifact);
+        Stream.of(mavenArtifact, pomMavenArtifact, sourceJarMavenArtifact, javadocMavenArtifact)
+                .forEach(installed -> declarator.declareTarget("install", installed.pathArtifact()));
+
     }
 }
@@ -44,6 +44,7 @@ public class YoleanModule implements JavaModule {
 
     private boolean declaredBuildsHasBeenInvoked = false;
     private MavenArtifact mavenArtifact = null;
+    private Artifact<Path> headerClassesArtifact = null;
 
     public YoleanModule(ModuleContext moduleContext, MavenRepository mavenRepository, Javac javac, Jar jar, Javadoc javadoc) {
         this.moduleContext = moduleContext;
@@ -66,6 +67,14 @@ public class YoleanModule implements JavaModule {
         return Objects.requireNonNull(mavenArtifact);
     }
 
+    /** The ABI-only classes, for compiling modules depending on yolean.  Must be invoked after declareBuilds(). */
+    public Artifact<Path> headerClassesArtifact() {
+        if (!declaredBuildsHasBeenInvoked) {
+            throw new IllegalStateException("declareBuilds() has not been called yet");
+        }
+        return Objects.requireNonNull(headerClassesArtifact);
+    }
+
     @Override
     public void declareBuilds(Declarator declarator) {
         if (declaredBuildsHasBeenInvoked) {
@@ -91,7 +100,7 @@ public class YoleanModule implements JavaModule {
                 .map(mavenArtifact -> mavenRepository.declareDownload(declarator, mavenArtifact))
                 .collect(Collectors.toList());
 
-        Artifact<Path> classesArtifact = new JavaCompiler(javac, null)
+        JavaCompiler compiler = new JavaCompiler(javac, null)
                 .addSourceFilesArtifact(sourceArtifacts.javaFilesArtifact())
                 .addClassPathEntries(providedMavenArtifacts.stream().map(ClassPathEntry::fromMavenArtifact).collect(Collectors.toList()))
                 .addJavacArguments(List.of(
@@ -100,7 +109,9 @@ public class YoleanModule implements JavaModule {
                         "-Xlint:all", "-Xlint:-serial", "-Xlint:-try", "-Xlint:-processing", "-Xlint:-varargs",
                         "-Xlint:-options", "-Werror"))
                 .setDestinationDirectory(declarator.moduleContext().pathOf("target/classes"))
-                .declareCompile(declarator);
+                .setHeaderDestinationDirectory(declarator.moduleContext().pathOf("target/header-classes"));
+        Artifact<Path> classesArtifact = compiler.declareCompile(declarator);
+        this.headerClassesArtifact = compiler.declareHeaderCompile(declarator);
 
         Artifact<FileSet2> testSourceArtifact = FileTreeScanner.newBuilder(declarator, "test source")
                 .includeFiles(moduleContext.pathOf("src/test/java"), true, PathPattern.of("*.java"))
@@ -174,5 +185,13 @@ public class YoleanModule implements JavaModule {
         MavenArtifact pomMavenArtifact = artifactInstaller.install(Path.of("pom.xml"), mavenArtifactId.withPackaging("pom"));
         MavenArtifact sourceJarMavenArtifact = artifactInstaller.install(sourceJarArtifact, mavenArtifactId.withClassifier("sources"));
         MavenArtifact javadocMavenArtifact = artifactInstaller.install(javadocJarArtifact, mavenArtifactId.withClassifier("javadoc"));
+
+        declarator.declareTarget("compile", classesArtifact);
+        declarator.declareTarget("test-compile", testClassesArtifact);
+        declarator.declareTarget("test", testArtifact);
+        declarator.declareTarget("jar", assemblerOutput.jarArtifact());
+        declarator.declareTarget("javadoc", javadocJarArtifact);
+        Stream.of(mavenArtifact, pomMavenArtifact, sourceJarMavenArtifact, javadocMavenArtifact)
+                .forEach(installed -> declarator.declareTarget("install", installed.pathArtifact()));
     }
 }
@@ -7,6 +7,7 @@ import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
 import no.ion.jake.build.Declarator;
+import no.ion.jake.build.Fingerprint;
 import no.ion.jake.build.JavaModule;
 import no.ion.jake.build.ModuleContext;
 
@@ -24,6 +25,12 @@ public class AbiChecker {
             declaration.forBuild(new Build() {
                 @Override public String name() { return "check abi"; }
 
+                @Override
+                public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+                    fingerprint.putFile(moduleContext.resolve("abi-spec.json"));
+                    return true;
+                }
+
                 @Override
                 public void build(BuildContext buildContext) {
                     var projectAdapter = new ProjectApi() {
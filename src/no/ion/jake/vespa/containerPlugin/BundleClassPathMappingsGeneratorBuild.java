@@ -4,6 +4,7 @@ import com.yahoo.container.plugin.bundle.GenerateBundleClassPathMappings;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
 import no.ion.jake.build.JavaModule;
 import no.ion.jake.build.ModuleContext;
 import no.ion.jake.maven.MavenArtifact;
@@ -31,6 +32,12 @@ public class BundleClassPathMappingsGeneratorBuild implements Build {
 
     @Override public String name() { return name; }
 
+    @Override
+    public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+        fingerprint.putStrings(mavenArtifactsForCompile.stream().map(artifact -> artifact.id().toCoordinate()).collect(Collectors.toList()));
+        return true;
+    }
+
     @Override
     public void build(BuildContext buildContext) {
         ProjectImpl projectAdapter = new ProjectImpl(moduleContext, module,
@@ -4,6 +4,7 @@ import com.yahoo.container.plugin.osgi.GenerateOsgiManifest;
 import no.ion.jake.build.Artifact;
 import no.ion.jake.build.Build;
 import no.ion.jake.build.BuildContext;
+import no.ion.jake.build.Fingerprint;
 import no.ion.jake.build.JavaModule;
 import no.ion.jake.build.ModuleContext;
 import no.ion.jake.maven.MavenArtifact;
@@ -56,6 +57,23 @@ public class OsgiManifestGeneratorBuild implements Build {
 
     @Override public String name() { return name; }
 
+    @Override
+    public boolean fingerprint(Fingerprint fingerprint, ModuleContext moduleContext) {
+        fingerprint.putString(discApplicationClass)
+                .putString(discPreInstallBundle)
+                .putString(bundleActivator)
+                .putString(jdiscPrivilegedActivator)
+                .putString(webInfUrl)
+                .putString(mainClass)
+                .putBoolean(buildLegacyVespaPlatformBundle)
+                .putBoolean(useArtifactVersionForExportPackages)
+                .putString(bundleVersion)
+                .putString(bundleSymbolicName)
+                .putString(importPackage)
+                .putStrings(mavenArtifactsForCompile.stream().map(artifact -> artifact.id().toCoordinate()).collect(Collectors.toList()));
+        return true;
+    }
+
     @Override
     public void build(BuildContext buildContext) {
         ProjectImpl projectAdapter = new ProjectImpl(moduleContext, module,